@@ -0,0 +1,78 @@
+package study.datajpa.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.ResolvableType;
+import org.springframework.data.auditing.AuditingHandler;
+import org.springframework.data.jpa.mapping.JpaMetamodelMappingContext;
+import org.springframework.data.domain.AuditorAware;
+import org.springframework.data.mapping.context.PersistentEntities;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import study.datajpa.audit.AuditListener;
+import study.datajpa.entity.Member;
+
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 기존 AuditingEntityListener 경로 (AuditingHandler + UUID.randomUUID() AuditorAware) vs AuditListener
+ * 트랜잭션 하나에서 엔티티 ENTITIES_PER_TX 개를 insert 하는 상황을 흉내낸다. 여러 스레드로 돌려서 경합을 본다.
+ * ./gradlew jmh -PjmhInclude=AuditingBenchmark -PjmhProfilers=gc 로 할당량도 비교할 수 있다.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Threads(8)
+public class AuditingBenchmark {
+    private static final int ENTITIES_PER_TX = 100;
+
+    ConfigurableApplicationContext context;
+    AuditingHandler legacyHandler;
+    AuditListener auditListener;
+
+    @Setup
+    public void setUp() {
+        context = BenchmarkContext.start("auditing");
+
+        // 변경 전 DataJpaApplication.auditorProvider() 와 같은 설정
+        legacyHandler = new AuditingHandler(PersistentEntities.of(context.getBean(JpaMetamodelMappingContext.class)));
+        AuditorAware<String> uuidAuditor = () -> Optional.of(UUID.randomUUID().toString());
+        legacyHandler.setAuditorAware(uuidAuditor);
+
+        ObjectProvider<AuditorAware<String>> auditorAware =
+                context.getBeanProvider(ResolvableType.forClassWithGenerics(AuditorAware.class, String.class));
+        auditListener = new AuditListener(auditorAware);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ENTITIES_PER_TX)
+    public void auditingEntityListener() {
+        for (int i = 0; i < ENTITIES_PER_TX; i++) {
+            legacyHandler.markCreated(new Member("bench"));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ENTITIES_PER_TX)
+    public void auditListener() {
+        // 트랜잭션 동기화만 열어서 작업자가 트랜잭션 단위로 캐시되게 한다.
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            for (int i = 0; i < ENTITIES_PER_TX; i++) {
+                auditListener.touchForCreate(new Member("bench"));
+            }
+        } finally {
+            TransactionSynchronizationManager.getSynchronizations()
+                    .forEach(synchronization -> synchronization.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package study.datajpa.benchmark;
+
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import study.datajpa.DataJpaApplication;
+
+/**
+ * 벤치마크용 스프링 컨텍스트
+ * tcp H2 서버 대신 embedded(in-memory) H2 를 띄우고, SQL 로그는 끈다.
+ */
+public final class BenchmarkContext {
+    // MemberController.init() 이 시퀀스로 넣는 데이터와 겹치지 않도록 직접 넣는 id 는 이 값부터 시작한다.
+    public static final long SEED_ID_OFFSET = 10_000_000L;
+
+    private BenchmarkContext() {
+    }
+
+    public static ConfigurableApplicationContext start(String databaseName, String... properties) {
+        return new SpringApplicationBuilder(DataJpaApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties(
+                        "spring.datasource.url=jdbc:h2:mem:" + databaseName + ";DB_CLOSE_DELAY=-1",
+                        "spring.jpa.properties.hibernate.format_sql=false",
+                        "logging.level.org.hibernate.SQL=warn",
+                        "decorator.datasource.p6spy.enable-logging=false")
+                .properties(properties)
+                .run();
+    }
+
+    /**
+     * 회원 rows 건을 SQL 한 방으로 넣는다. (save() 를 rows 번 호출하면 셋업이 벤치마크보다 오래 걸린다)
+     * username 은 정렬했을 때 id 순서와 같도록 0 으로 채운다.
+     */
+    public static void seedMembers(ConfigurableApplicationContext context, int rows) {
+        seedMembers(context, rows, 0);
+    }
+
+    /**
+     * teams > 0 이면 팀을 teams 개 만들고 회원을 돌아가면서 배정한다.
+     */
+    public static void seedMembers(ConfigurableApplicationContext context, int rows, int teams) {
+        JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+        if (teams > 0) {
+            jdbcTemplate.update("insert into team (team_id, name, version)" +
+                    " select x + " + SEED_ID_OFFSET + ", 'team' || x, 0" +
+                    " from system_range(1, ?)", teams);
+        }
+        String teamId = teams > 0 ? "mod(x, " + teams + ") + 1 + " + SEED_ID_OFFSET : "null";
+        jdbcTemplate.update("insert into member (member_id, username, age, team_id, version)" +
+                " select x + " + SEED_ID_OFFSET + ", 'seed' || lpad(x, 10, '0'), mod(x, 100), " + teamId + ", 0" +
+                " from system_range(1, ?)", rows);
+    }
+}
@@ -0,0 +1,68 @@
+package study.datajpa.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.datajpa.entity.Member;
+
+import javax.persistence.EntityManager;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 시퀀스 블록 크기(increment_size)에 따른 insert 비용
+ * increment_size=1 이면 persist 마다 시퀀스를 호출하고, 50 이면 50건에 한 번만 호출한다.
+ * sequenceCalls 보조 지표에 호출당 시퀀스 왕복 횟수가 찍힌다.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class IdAllocationBenchmark {
+    private static final int ROWS_PER_OP = 1000;
+
+    @Param({"1", "50"})
+    int incrementSize;
+
+    ConfigurableApplicationContext context;
+    EntityManager em;
+    TransactionTemplate transactionTemplate;
+    JdbcTemplate jdbcTemplate;
+
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class RoundTrips {
+        public long sequenceCalls;
+    }
+
+    @Setup
+    public void setUp() {
+        context = BenchmarkContext.start("id" + incrementSize,
+                "spring.jpa.properties.datajpa.id.increment_size=" + incrementSize);
+        em = context.getBean(EntityManager.class);
+        transactionTemplate = context.getBean(TransactionTemplate.class);
+        jdbcTemplate = context.getBean(JdbcTemplate.class);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public void insert(RoundTrips roundTrips) {
+        long before = currentSequenceValue();
+        transactionTemplate.executeWithoutResult(status -> {
+            for (int i = 0; i < ROWS_PER_OP; i++) {
+                em.persist(new Member("bench" + i, i % 100));
+            }
+            em.flush();
+            em.clear();
+        });
+        roundTrips.sequenceCalls += (currentSequenceValue() - before) / incrementSize;
+    }
+
+    private long currentSequenceValue() {
+        return jdbcTemplate.queryForObject(
+                "select current_value from information_schema.sequences where sequence_name = 'MEMBER_SEQ'", Long.class);
+    }
+}
@@ -0,0 +1,81 @@
+package study.datajpa.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.datajpa.entity.Member;
+import study.datajpa.repository.MemberRepository;
+import study.datajpa.repository.support.OptimisticRetryTemplate;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 같은 회원 hotRows 명을 8 스레드가 동시에 수정할 때의 처리량
+ * - pessimistic: findLockByUsername (select for update) -> 수정 -> 커밋
+ * - optimistic: findByUsername -> 수정 -> 커밋, 충돌하면 OptimisticRetryTemplate 이 다시 시도
+ * attempts 보조 지표에 수정 한 번당 시도 횟수가 찍힌다. (1 이면 충돌 없음)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Threads(8)
+public class LockContentionBenchmark {
+    @Param({"1", "8", "64"})
+    int hotRows;
+
+    ConfigurableApplicationContext context;
+    MemberRepository memberRepository;
+    TransactionTemplate transactionTemplate;
+    OptimisticRetryTemplate optimisticRetryTemplate;
+
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Attempts {
+        public long attempts;
+    }
+
+    @Setup
+    public void setUp() {
+        // 한 row 에 8 스레드가 몰려도 재시도를 포기하지 않도록
+        context = BenchmarkContext.start("contention" + hotRows,
+                "datajpa.optimistic.max-attempts=1000",
+                "datajpa.optimistic.backoff-millis=1",
+                "datajpa.optimistic.max-backoff-millis=20");
+        BenchmarkContext.seedMembers(context, hotRows);
+        memberRepository = context.getBean(MemberRepository.class);
+        transactionTemplate = context.getBean(TransactionTemplate.class);
+        optimisticRetryTemplate = context.getBean(OptimisticRetryTemplate.class);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public void pessimistic(Attempts attempts) {
+        String username = hotUsername();
+        transactionTemplate.executeWithoutResult(status -> {
+            attempts.attempts++;
+            Member member = memberRepository.findLockByUsername(username).get(0);
+            member.setAge(member.getAge() + 1);
+        });
+    }
+
+    @Benchmark
+    public void optimistic(Attempts attempts) {
+        String username = hotUsername();
+        optimisticRetryTemplate.executeWithoutResult(status -> {
+            attempts.attempts++;
+            Member member = memberRepository.findByUsername(username).get(0);
+            member.setAge(member.getAge() + 1);
+        });
+    }
+
+    // BenchmarkContext.seedMembers 의 username 규칙
+    private String hotUsername() {
+        int x = ThreadLocalRandom.current().nextInt(hotRows) + 1;
+        return "seed" + String.format("%010d", x);
+    }
+}
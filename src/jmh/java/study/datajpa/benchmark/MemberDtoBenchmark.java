@@ -0,0 +1,72 @@
+package study.datajpa.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.datajpa.dto.MemberDto;
+import study.datajpa.entity.Member;
+import study.datajpa.repository.MemberRepository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * MemberDto 를 만드는 방법
+ * - fromEntity: 엔티티(fetch join) 를 읽고 new MemberDto(member) 로 변환 (스냅샷 + 변환 비용)
+ * - projection: select new MemberDto(...) 로 바로 조회
+ * - construct: 이미 읽어둔 엔티티에서 DTO 생성만 (순수 매핑 비용)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class MemberDtoBenchmark {
+    @Param({"1000", "10000"})
+    int rows;
+
+    ConfigurableApplicationContext context;
+    MemberRepository memberRepository;
+    TransactionTemplate readOnly;
+    List<Member> loaded;
+
+    @Setup
+    public void setUp() {
+        context = BenchmarkContext.start("dto" + rows,
+                "spring.jpa.properties.hibernate.cache.use_second_level_cache=false",
+                "spring.jpa.properties.hibernate.cache.use_query_cache=false");
+        BenchmarkContext.seedMembers(context, rows, Math.max(1, rows / 100));
+
+        memberRepository = context.getBean(MemberRepository.class);
+        readOnly = new TransactionTemplate(context.getBean(TransactionTemplate.class).getTransactionManager());
+        readOnly.setReadOnly(true);
+        loaded = readOnly.execute(status -> memberRepository.findMemberFetchJoin());
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<MemberDto> fromEntity() {
+        return readOnly.execute(status -> toDto(memberRepository.findMemberFetchJoin()));
+    }
+
+    @Benchmark
+    public List<MemberDto> projection() {
+        return readOnly.execute(status -> memberRepository.findMemberDto());
+    }
+
+    @Benchmark
+    public List<MemberDto> construct() {
+        return toDto(loaded);
+    }
+
+    private List<MemberDto> toDto(List<Member> members) {
+        List<MemberDto> result = new ArrayList<>(members.size());
+        for (Member member : members) {
+            result.add(new MemberDto(member));
+        }
+        return result;
+    }
+}
@@ -0,0 +1,74 @@
+package study.datajpa.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import study.datajpa.dto.CursorResult;
+import study.datajpa.dto.MemberCursor;
+import study.datajpa.dto.MemberDto;
+import study.datajpa.repository.MemberRepository;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * offset 페이징 vs keyset(cursor) 페이징
+ * 같은 정렬(username nulls first, id), 같은 행(username 이 없는 회원 포함), 같은 DTO 프로젝션으로 page 번째 페이지를 읽는 비용을 비교한다.
+ * offset 은 page 가 깊어질수록 느려지고, keyset 은 일정해야 한다.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class MemberPagingBenchmark {
+    private static final int PAGE_SIZE = 20;
+
+    @Param({"100000"})
+    int rows;
+
+    @Param({"0", "500", "4000"})
+    int page;
+
+    ConfigurableApplicationContext context;
+    MemberRepository memberRepository;
+    EntityManager em;
+    MemberCursor cursor;
+
+    @Setup
+    public void setUp() {
+        context = BenchmarkContext.start("paging");
+        BenchmarkContext.seedMembers(context, rows);
+        memberRepository = context.getBean(MemberRepository.class);
+        em = context.getBean(EntityManager.class);
+
+        // page 번째 페이지 직전 row 를 커서로 잡아둔다. (클라이언트가 next 토큰을 들고 온 상황)
+        if (page > 0) {
+            List<MemberDto> previous = offsetPage(page * PAGE_SIZE - 1, 1);
+            MemberDto last = previous.get(0);
+            cursor = new MemberCursor(last.getUsername(), last.getId());
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<MemberDto> offset() {
+        return offsetPage(page * PAGE_SIZE, PAGE_SIZE);
+    }
+
+    @Benchmark
+    public CursorResult<MemberDto> keyset() {
+        return memberRepository.findMemberDtoByCursor(cursor, PAGE_SIZE);
+    }
+
+    private List<MemberDto> offsetPage(int offset, int limit) {
+        return em.createQuery("select new study.datajpa.dto.MemberDto(m.id, m.username, t.name)" +
+                        " from Member m left join m.team t" +
+                        " order by m.username asc nulls first, m.id asc", MemberDto.class)
+                .setFirstResult(offset)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+}
@@ -0,0 +1,107 @@
+package study.datajpa.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.datajpa.entity.Member;
+import study.datajpa.repository.MemberJpaRepository;
+import study.datajpa.repository.MemberRepository;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 레포지토리 주요 경로
+ * - findByAge: Page(content + count) vs Slice(limit + 1) vs List
+ * - team 조회: fetch join vs entity graph vs 지연로딩(N+1)
+ * - 순수 JPA 페이징, 벌크 update
+ *
+ * 쿼리 비용만 보기 위해 2차 캐시는 끈다.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class MemberRepositoryBenchmark {
+    private static final int AGE = 42;
+    private static final PageRequest PAGE = PageRequest.of(1, 20, Sort.Direction.DESC, "username");
+
+    @Param({"1000", "100000"})
+    int rows;
+
+    ConfigurableApplicationContext context;
+    MemberRepository memberRepository;
+    MemberJpaRepository memberJpaRepository;
+    TransactionTemplate readOnly;
+    TransactionTemplate readWrite;
+
+    @Setup
+    public void setUp() {
+        context = BenchmarkContext.start("repository" + rows,
+                "spring.jpa.properties.hibernate.cache.use_second_level_cache=false",
+                "spring.jpa.properties.hibernate.cache.use_query_cache=false");
+        BenchmarkContext.seedMembers(context, rows, Math.max(1, rows / 100));
+
+        memberRepository = context.getBean(MemberRepository.class);
+        memberJpaRepository = context.getBean(MemberJpaRepository.class);
+        readWrite = context.getBean(TransactionTemplate.class);
+        readOnly = new TransactionTemplate(readWrite.getTransactionManager());
+        readOnly.setReadOnly(true);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Page<Member> findByAge_page() {
+        return readOnly.execute(status -> memberRepository.findByAge(AGE, PAGE));
+    }
+
+    @Benchmark
+    public Slice<Member> findByAge_slice() {
+        return readOnly.execute(status -> memberRepository.findSliceByAge(AGE, PAGE));
+    }
+
+    @Benchmark
+    public List<Member> findByAge_list() {
+        return readOnly.execute(status -> memberRepository.findListByAge(AGE, PAGE));
+    }
+
+    @Benchmark
+    public List<Member> findByPage_jpa() {
+        return readOnly.execute(status -> memberJpaRepository.findByPage(AGE, 20, 20));
+    }
+
+    @Benchmark
+    public void team_fetchJoin(Blackhole blackhole) {
+        readOnly.executeWithoutResult(status -> touchTeams(memberRepository.findMemberFetchJoin(), blackhole));
+    }
+
+    @Benchmark
+    public void team_entityGraph(Blackhole blackhole) {
+        readOnly.executeWithoutResult(status -> touchTeams(memberRepository.findMemberEntityGraph(), blackhole));
+    }
+
+    @Benchmark
+    public void team_lazy(Blackhole blackhole) {
+        // 팀 수 만큼 select 가 추가로 나간다. (N+1)
+        readOnly.executeWithoutResult(status -> touchTeams(memberRepository.findMemberCustom(), blackhole));
+    }
+
+    @Benchmark
+    public int bulkAgePlus() {
+        return readWrite.execute(status -> memberRepository.bulkAgePlus(AGE));
+    }
+
+    private void touchTeams(List<Member> members, Blackhole blackhole) {
+        for (Member member : members) {
+            blackhole.consume(member.getTeam().getName());
+        }
+    }
+}
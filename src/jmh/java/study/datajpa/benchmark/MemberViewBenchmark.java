@@ -0,0 +1,82 @@
+package study.datajpa.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.orm.jpa.EntityManagerFactoryUtils;
+import org.springframework.orm.jpa.EntityManagerHolder;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import study.datajpa.controller.MemberViewConverter;
+import study.datajpa.repository.MemberRepository;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * /members2/{id} 한 요청에서 id -> username 까지
+ * - entity: 도메인 클래스 컨버터와 같은 findById(id).get() (엔티티 + 스냅샷이 요청 끝까지 영속성 컨텍스트에)
+ * - view: MemberViewConverter (select new MemberView)
+ * 요청마다 OSIV 처럼 EntityManager 를 열어서 묶고 닫는다.
+ * 2차 캐시가 켜져 있으면 entity 는 SQL 없이 캐시에서 조립되고, view 는 매번 SQL 을 실행한다. (둘 다 본다)
+ * 요청당 할당량: ./gradlew jmh -PjmhInclude=MemberViewBenchmark -PjmhProfilers=gc (gc.alloc.rate.norm)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class MemberViewBenchmark {
+    private static final int ROWS = 10_000;
+
+    @Param({"true", "false"})
+    boolean secondLevelCache;
+
+    ConfigurableApplicationContext context;
+    EntityManagerFactory emf;
+    MemberRepository memberRepository;
+    MemberViewConverter memberViewConverter;
+
+    @Setup
+    public void setUp() {
+        context = BenchmarkContext.start("view" + secondLevelCache,
+                "spring.jpa.properties.hibernate.cache.use_second_level_cache=" + secondLevelCache);
+        BenchmarkContext.seedMembers(context, ROWS);
+
+        emf = context.getBean(EntityManagerFactory.class);
+        memberRepository = context.getBean(MemberRepository.class);
+        memberViewConverter = context.getBean(MemberViewConverter.class);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public String entity() {
+        Long id = randomId();
+        return inRequest(() -> memberRepository.findById(id).get().getUsername());
+    }
+
+    @Benchmark
+    public String view() {
+        String id = String.valueOf(randomId());
+        return inRequest(() -> memberViewConverter.convert(id).getUsername());
+    }
+
+    private Long randomId() {
+        return BenchmarkContext.SEED_ID_OFFSET + 1 + ThreadLocalRandom.current().nextInt(ROWS);
+    }
+
+    // OpenEntityManagerInViewInterceptor 와 같은 순서
+    private String inRequest(Supplier<String> handler) {
+        EntityManager em = emf.createEntityManager();
+        TransactionSynchronizationManager.bindResource(emf, new EntityManagerHolder(em));
+        try {
+            return handler.get();
+        } finally {
+            TransactionSynchronizationManager.unbindResource(emf);
+            EntityManagerFactoryUtils.closeEntityManager(em);
+        }
+    }
+}
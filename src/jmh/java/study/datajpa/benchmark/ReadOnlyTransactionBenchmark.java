@@ -0,0 +1,58 @@
+package study.datajpa.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.datajpa.repository.MemberRepository;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 같은 조회(findMemberFetchJoin, 회원 + 팀)를 한 트랜잭션에서
+ * - readWrite: 쓰기 트랜잭션 (엔티티마다 스냅샷, 커밋할 때 flush 로 전체 dirty checking)
+ * - readOnly: 레포지토리 기본 읽기 전용 트랜잭션 (스냅샷 없음, FlushMode.MANUAL)
+ * 요청당 힙 사용량: ./gradlew jmh -PjmhInclude=ReadOnlyTransactionBenchmark -PjmhProfilers=gc (gc.alloc.rate.norm)
+ *
+ * 측정 예 (JDK 11, fork 1, warmup 3 / 측정 5회, 호출 1번당 gc.alloc.rate.norm)
+ *   rows=1000 : readWrite 1,932,302 B, readOnly 1,832,108 B (-5.2%)
+ *   rows=10000: readWrite 16,465,279 B, readOnly 16,203,859 B (-1.6%)
+ * 할당의 대부분은 결과 row 읽기와 엔티티 생성이고, 스냅샷/flush 몫은 그보다 작다.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ReadOnlyTransactionBenchmark {
+    @Param({"1000", "10000"})
+    int rows;
+
+    ConfigurableApplicationContext context;
+    MemberRepository memberRepository;
+    TransactionTemplate readWrite;
+
+    @Setup
+    public void setUp() {
+        context = BenchmarkContext.start("readOnly" + rows,
+                "spring.jpa.properties.hibernate.cache.use_second_level_cache=false",
+                "spring.jpa.properties.hibernate.cache.use_query_cache=false");
+        BenchmarkContext.seedMembers(context, rows, Math.max(1, rows / 100));
+
+        memberRepository = context.getBean(MemberRepository.class);
+        readWrite = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public int readWrite() {
+        return readWrite.execute(status -> memberRepository.findMemberFetchJoin().size());
+    }
+
+    @Benchmark
+    public int readOnly() {
+        return memberRepository.findMemberFetchJoin().size();
+    }
+}
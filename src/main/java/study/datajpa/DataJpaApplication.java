@@ -1,15 +1,16 @@
 package study.datajpa;
 
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.context.annotation.Bean;
 import org.springframework.data.domain.AuditorAware;
 import org.springframework.data.jpa.repository.config.EnableJpaAuditing;
+import study.datajpa.audit.AuditorResolver;
+import study.datajpa.audit.RequestPrincipalAuditorResolver;
+import study.datajpa.audit.TransactionScopedAuditorAware;
 
-import java.util.Optional;
-import java.util.UUID;
-
-@EnableJpaAuditing // 반드시 넣어야함 !!!! Auditing 할 때
+@EnableJpaAuditing // 반드시 넣어야함 !!!! Auditing 할 때 (엔티티는 AuditListener 를 쓰지만 AuditingHandler 비교용으로 남겨둔다)
 @SpringBootApplication
 public class DataJpaApplication {
 
@@ -18,9 +19,12 @@ public class DataJpaApplication {
     }
 
     @Bean // 반드시 넣어야함 !!!! Auditing createdBy 할 때
-    public AuditorAware<String> auditorProvider() {
+    public AuditorAware<String> auditorProvider(ObjectProvider<AuditorResolver> auditorResolver) {
         // 람다
-        return () -> Optional.of(UUID.randomUUID().toString());
+//        return () -> Optional.of(UUID.randomUUID().toString());
+        // 위 방식은 insert/update 마다 UUID.randomUUID() (공유 SecureRandom) 를 호출한다. -> 트랜잭션당 한 번만 구한다.
+        // AuditorResolver 빈을 등록하면 작업자를 구하는 방법을 바꿀 수 있다.
+        return new TransactionScopedAuditorAware(auditorResolver.getIfAvailable(RequestPrincipalAuditorResolver::new));
 //        return new AuditorAware<String>() {
 //            @Override
 //            public Optional<String> getCurrentAuditor() {
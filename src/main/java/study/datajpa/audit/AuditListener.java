@@ -0,0 +1,47 @@
+package study.datajpa.audit;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.data.domain.AuditorAware;
+
+import javax.persistence.PrePersist;
+import javax.persistence.PreUpdate;
+import java.time.LocalDateTime;
+
+/**
+ * AuditingEntityListener 대신 쓰는 엔티티 리스너
+ *
+ * AuditingEntityListener 는 콜백마다 엔티티를 감싸는 wrapper 를 만들고 프로퍼티 접근자로 값을 넣는다.
+ * 여기서는 클래스별로 캐시한 AuditMetadata 로 필드에 바로 넣고, 작업자는 트랜잭션당 한 번만 구한다.
+ * (hibernate 가 스프링 빈 컨테이너로 리스너를 만들기 때문에 생성자 주입이 된다.)
+ */
+public class AuditListener {
+    private final ObjectProvider<AuditorAware<String>> auditorAware;
+
+    public AuditListener(ObjectProvider<AuditorAware<String>> auditorAware) {
+        this.auditorAware = auditorAware;
+    }
+
+    @PrePersist
+    public void touchForCreate(Object entity) {
+        AuditMetadata metadata = AuditMetadata.of(entity.getClass());
+        if (metadata.isAuditable()) {
+            metadata.markCreated(entity, LocalDateTime.now(), currentAuditor(metadata));
+        }
+    }
+
+    @PreUpdate
+    public void touchForUpdate(Object entity) {
+        AuditMetadata metadata = AuditMetadata.of(entity.getClass());
+        if (metadata.isAuditable()) {
+            metadata.markModified(entity, LocalDateTime.now(), currentAuditor(metadata));
+        }
+    }
+
+    private String currentAuditor(AuditMetadata metadata) {
+        if (!metadata.hasAuditorFields()) {
+            return null;
+        }
+        AuditorAware<String> aware = auditorAware.getIfAvailable();
+        return aware == null ? null : aware.getCurrentAuditor().orElse(null);
+    }
+}
@@ -0,0 +1,97 @@
+package study.datajpa.audit;
+
+import org.springframework.data.annotation.CreatedBy;
+import org.springframework.data.annotation.CreatedDate;
+import org.springframework.data.annotation.LastModifiedBy;
+import org.springframework.data.annotation.LastModifiedDate;
+
+import java.lang.annotation.Annotation;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.time.LocalDateTime;
+
+/**
+ * 엔티티 클래스별 auditing 필드 정보
+ * 클래스마다 한 번만 리플렉션으로 찾고, 이후에는 만들어둔 MethodHandle 로 바로 값을 넣는다.
+ */
+final class AuditMetadata {
+    private static final ClassValue<AuditMetadata> CACHE = new ClassValue<AuditMetadata>() {
+        @Override
+        protected AuditMetadata computeValue(Class<?> type) {
+            return new AuditMetadata(type);
+        }
+    };
+
+    // (Object entity, Object value) -> void 로 맞춰두고 invokeExact 로 호출한다.
+    private static final MethodType SETTER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+
+    private final MethodHandle createdDate;
+    private final MethodHandle lastModifiedDate;
+    private final MethodHandle createdBy;
+    private final MethodHandle lastModifiedBy;
+
+    private AuditMetadata(Class<?> type) {
+        this.createdDate = setter(type, CreatedDate.class, LocalDateTime.class);
+        this.lastModifiedDate = setter(type, LastModifiedDate.class, LocalDateTime.class);
+        this.createdBy = setter(type, CreatedBy.class, String.class);
+        this.lastModifiedBy = setter(type, LastModifiedBy.class, String.class);
+    }
+
+    static AuditMetadata of(Class<?> type) {
+        return CACHE.get(type);
+    }
+
+    boolean isAuditable() {
+        return createdDate != null || lastModifiedDate != null || createdBy != null || lastModifiedBy != null;
+    }
+
+    boolean hasAuditorFields() {
+        return createdBy != null || lastModifiedBy != null;
+    }
+
+    void markCreated(Object entity, LocalDateTime now, String auditor) {
+        set(createdDate, entity, now);
+        set(createdBy, entity, auditor);
+        // 스프링 AuditingHandler 와 같이 생성 시점에도 수정 정보를 채운다.
+        markModified(entity, now, auditor);
+    }
+
+    void markModified(Object entity, LocalDateTime now, String auditor) {
+        set(lastModifiedDate, entity, now);
+        set(lastModifiedBy, entity, auditor);
+    }
+
+    private static void set(MethodHandle setter, Object entity, Object value) {
+        if (setter == null) {
+            return;
+        }
+        try {
+            setter.invokeExact(entity, value);
+        } catch (Throwable e) {
+            throw new IllegalStateException("cannot set audit field on " + entity.getClass().getName(), e);
+        }
+    }
+
+    private static MethodHandle setter(Class<?> type, Class<? extends Annotation> annotation, Class<?> fieldType) {
+        for (Class<?> current = type; current != null && current != Object.class; current = current.getSuperclass()) {
+            for (Field field : current.getDeclaredFields()) {
+                if (!field.isAnnotationPresent(annotation)) {
+                    continue;
+                }
+                if (field.getType() != fieldType) {
+                    throw new IllegalStateException("@" + annotation.getSimpleName() + " field must be "
+                            + fieldType.getSimpleName() + ": " + current.getName() + "." + field.getName());
+                }
+                try {
+                    field.setAccessible(true);
+                    return MethodHandles.lookup().unreflectSetter(field).asType(SETTER_TYPE);
+                } catch (IllegalAccessException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,10 @@
+package study.datajpa.audit;
+
+/**
+ * 현재 작업자(createdBy, lastModifiedBy)를 구하는 방법
+ * 트랜잭션당 한 번만 호출되므로 조금 비싸도 괜찮다. (세션 조회, 토큰 파싱 등)
+ */
+@FunctionalInterface
+public interface AuditorResolver {
+    String resolve();
+}
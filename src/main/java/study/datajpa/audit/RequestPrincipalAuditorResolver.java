@@ -0,0 +1,32 @@
+package study.datajpa.audit;
+
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.security.Principal;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 기본 AuditorResolver
+ * HTTP 요청의 사용자(Principal)가 있으면 그 이름을 쓰고, 없으면 임의의 id 를 만든다.
+ *
+ * UUID.randomUUID() 는 공유 SecureRandom 을 거치기 때문에 쓰기가 많으면 경합이 생긴다.
+ * 보안용 난수가 필요한 값이 아니므로 스레드별 ThreadLocalRandom 으로 만든다.
+ */
+public class RequestPrincipalAuditorResolver implements AuditorResolver {
+
+    @Override
+    public String resolve() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes instanceof ServletRequestAttributes) {
+            Principal principal = ((ServletRequestAttributes) attributes).getRequest().getUserPrincipal();
+            if (principal != null) {
+                return principal.getName();
+            }
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return new UUID(random.nextLong(), random.nextLong()).toString();
+    }
+}
@@ -0,0 +1,41 @@
+package study.datajpa.audit;
+
+import org.springframework.data.domain.AuditorAware;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Optional;
+
+/**
+ * 작업자를 트랜잭션당 한 번만 구한다.
+ * insert/update 마다 AuditorResolver 를 호출하지 않고, 트랜잭션 리소스에 묶어두고 재사용한다.
+ * 트랜잭션 밖에서 호출되면 매번 구한다.
+ */
+public class TransactionScopedAuditorAware implements AuditorAware<String> {
+    private final AuditorResolver resolver;
+
+    public TransactionScopedAuditorAware(AuditorResolver resolver) {
+        this.resolver = resolver;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked") // 이 객체를 키로 bindResource 하는 곳은 아래 한 곳뿐이다.
+    public Optional<String> getCurrentAuditor() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return Optional.ofNullable(resolver.resolve());
+        }
+
+        Optional<String> auditor = (Optional<String>) TransactionSynchronizationManager.getResource(this);
+        if (auditor == null) {
+            auditor = Optional.ofNullable(resolver.resolve());
+            TransactionSynchronizationManager.bindResource(this, auditor);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(TransactionScopedAuditorAware.this);
+                }
+            });
+        }
+        return auditor;
+    }
+}
@@ -0,0 +1,39 @@
+package study.datajpa.controller;
+
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 2차 캐시 region 별 통계
+ * caffeine jcache 가 JMX 에 등록하는 표준 JCache 통계(CacheStatisticsMXBean)를 그대로 읽는다.
+ * application.conf 에서 monitoring.statistics = true 인 region 만 나온다.
+ */
+@RestController
+public class CacheStatsController {
+    private static final String[] ATTRIBUTES = {
+            "CacheHits", "CacheMisses", "CacheHitPercentage", "CachePuts", "CacheRemovals", "CacheEvictions"
+    };
+
+    private final MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+
+    @GetMapping("/cache/stats")
+    public Map<String, Map<String, Object>> stats() throws JMException {
+        Map<String, Map<String, Object>> result = new TreeMap<>();
+        for (ObjectName name : mBeanServer.queryNames(new ObjectName("javax.cache:type=CacheStatistics,*"), null)) {
+            Map<String, Object> values = new LinkedHashMap<>();
+            for (String attribute : ATTRIBUTES) {
+                values.put(attribute, mBeanServer.getAttribute(name, attribute));
+            }
+            result.put(name.getKeyProperty("Cache"), values);
+        }
+        return result;
+    }
+}
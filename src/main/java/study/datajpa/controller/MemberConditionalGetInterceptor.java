@@ -0,0 +1,77 @@
+package study.datajpa.controller;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpMethod;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+import study.datajpa.dto.MemberValidator;
+import study.datajpa.repository.MemberRepository;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.time.ZoneId;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * /members/{id}, /members2/{id} 조건부 GET
+ *
+ * 컨트롤러(와 /members2 의 도메인 클래스 컨버터)가 회원 엔티티를 읽기 전에 id, version, 수정 시간만 조회해서
+ * ETag("m{id}-{version}") / Last-Modified 를 내려주고, If-None-Match / If-Modified-Since 가 맞으면 304 로 끝낸다.
+ * - ETag 가 기준이다. Last-Modified 는 초 단위라 1초 안에 두 번 바뀌면 구분하지 못한다. (둘 다 오면 If-None-Match 만 본다)
+ * - 검증값 조회와 본문 조회 사이에 회원이 바뀌면 새 본문에 이전 ETag 가 붙는다. 다음 요청에서 ETag 가 달라 200 이 나가므로 오래된 304 는 없다.
+ */
+@Component
+@RequiredArgsConstructor
+public class MemberConditionalGetInterceptor implements HandlerInterceptor {
+    private final MemberRepository memberRepository;
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (!HttpMethod.GET.matches(request.getMethod()) && !HttpMethod.HEAD.matches(request.getMethod())) {
+            return true;
+        }
+        Long id = memberId(request);
+        if (id == null) {
+            return true;
+        }
+        // 없는 회원이면 컨트롤러가 처리한다.
+        Optional<MemberValidator> validator = memberRepository.findValidatorById(id);
+        if (!validator.isPresent()) {
+            return true;
+        }
+        return !new ServletWebRequest(request, response)
+                .checkNotModified(eTag(validator.get()), lastModified(validator.get()));
+    }
+
+    /**
+     * /members/export 같은 다른 핸들러이거나 숫자가 아니면 null
+     */
+    @SuppressWarnings("unchecked")
+    private Long memberId(HttpServletRequest request) {
+        Map<String, String> variables =
+                (Map<String, String>) request.getAttribute(HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE);
+        if (variables == null || variables.get("id") == null) {
+            return null;
+        }
+        try {
+            return Long.valueOf(variables.get("id"));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    static String eTag(MemberValidator validator) {
+        return "\"m" + validator.getId() + "-" + (validator.getVersion() == null ? 0 : validator.getVersion()) + "\"";
+    }
+
+    // 수정 시간이 없으면 (SQL 로 직접 넣은 회원) ETag 만 쓴다.
+    static long lastModified(MemberValidator validator) {
+        if (validator.getLastModifiedDate() == null) {
+            return -1;
+        }
+        return validator.getLastModifiedDate().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
@@ -5,30 +5,60 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.web.PageableDefault;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.server.ResponseStatusException;
+import study.datajpa.dto.CursorResult;
+import study.datajpa.dto.ImportFailure;
+import study.datajpa.dto.ImportResult;
+import study.datajpa.dto.MemberCursor;
 import study.datajpa.dto.MemberDto;
+import study.datajpa.dto.MemberView;
 import study.datajpa.entity.Member;
 import study.datajpa.repository.MemberRepository;
+import study.datajpa.repository.support.CountMode;
+import study.datajpa.service.MemberExportService;
+import study.datajpa.service.MemberImportException;
+import study.datajpa.service.MemberImportService;
 
 import javax.annotation.PostConstruct;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.InputStream;
 
 @RestController
 @RequiredArgsConstructor
 public class MemberController {
+    // application.yml 의 max-page-size 와 맞춘다.
+    private static final int MAX_CURSOR_PAGE_SIZE = 2000;
+
     private final MemberRepository memberRepository;
+    private final MemberImportService memberImportService;
+    private final MemberExportService memberExportService;
 
     @GetMapping("/members/{id}")
     public String findMember(@PathVariable("id") Long id) {
-        Member member = memberRepository.findById(id).get();
+        // findById(id).get() 은 엔티티를 영속성 컨텍스트에 올리고, 없는 회원이면 NoSuchElementException(500)
+        MemberView member = memberRepository.findViewById(id)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
         return member.getUsername();
     }
 
     @GetMapping("/members2/{id}")
     // 도메인 클래스 컨버터 사용 - 반드시 조회용
     // 만약 id가 member의 pk면 member로 받아도 스프링 boot가 자동으로 변환하여 인젝션 해준다.
-    public String findMember2(@PathVariable("id") Member member) {
+    // -> 엔티티 대신 MemberView 로 받는다. (MemberViewConverter, 없는 회원이면 null)
+    public String findMember2(@PathVariable(value = "id", required = false) MemberView member) {
+        if (member == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND);
+        }
         return member.getUsername();
     }
 
@@ -57,7 +87,9 @@ public class MemberController {
     /**
      * 아래와 같이 Dto 로 반드시 변환해서 내보내는 것이 좋다 !!!!! 강조강조강조초강조
      */
-    public Page<MemberDto> list(@PageableDefault(size = 5, sort = "username") Pageable pageable) {
+    public Page<MemberDto> list(@PageableDefault(size = 5, sort = "username") Pageable pageable,
+                                @RequestParam(value = "count", defaultValue = "EXACT") CountMode countMode,
+                                WebRequest webRequest) {
 //        Page<Member> page = memberRepository.findAll(pageable);
 //        Page<MemberDto> map = page.map(member -> new MemberDto(member.getId(), member.getUsername(), null));
 //        return map;
@@ -69,9 +101,79 @@ public class MemberController {
 //
 //        MyPage<MemberDto>...
 
-                // dto 에 멤버를 바로 넣어줄 수 있다.
-        return memberRepository.findAll(pageable)
-                .map(member -> new MemberDto(member));
+//                // dto 에 멤버를 바로 넣어줄 수 있다.
+//        return memberRepository.findAll(pageable)
+//                .map(member -> new MemberDto(member));
+
+        // 위 방식은 MemberDto(member) 에서 member.getTeam().getName() 을 호출할 때마다 team 을 조회한다. (N+1)
+        // 처음부터 DTO 로 조회하면 content 1번 + count 1번으로 끝난다.
+        // count 는 다른 스레드에서 동시에 실행하고 짧게 캐시한다. (PageCountExecutor) ?count=ESTIMATED 면 테이블 통계의 추정치를 쓴다.
+
+        // 조건부 GET: 같은 페이지 범위의 집계 한 번으로 페이지 ETag 를 만든다.
+        // If-None-Match 가 같으면 304 (쿼리 1번, null 을 반환하면 본문 없이 끝난다)
+        // 아니면 위와 같이 content + count. 전체 회원 수는 ETag 에 넣지 않는다. (count 캐시 TTL 만큼 늦을 수 있는 값이다)
+        // 페이지 번호/크기/정렬은 URL 이 다르면 다른 캐시 항목이므로 ETag 에 넣지 않는다.
+        long pageHash = memberRepository.findMemberDtoPageHash(pageable);
+        if (webRequest.checkNotModified("W/\"p" + Long.toHexString(pageHash) + "\"")) {
+            return null;
+        }
+        return memberRepository.findMemberDtoPage(pageable, countMode);
+    }
+
+    /**
+     * keyset 페이징 모드
+     * /members?cursor=&size=5 -> 첫 페이지
+     * /members?cursor={next}&size=5 -> 응답의 next 토큰을 그대로 넘기면 다음 페이지
+     *
+     * 페이지 번호가 없고 count 쿼리도 나가지 않는다. 깊은 페이지도 첫 페이지와 비용이 같다.
+     * username 순(null 이 먼저), 같으면 id 순. username 이 없는 회원도 빠지지 않는다.
+     */
+    @GetMapping(value = "/members", params = "cursor")
+    public CursorResult<MemberDto> listByCursor(@RequestParam("cursor") String cursor,
+                                                @RequestParam(value = "size", defaultValue = "5") int size) {
+        if (size < 1 || size > MAX_CURSOR_PAGE_SIZE) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "size must be between 1 and " + MAX_CURSOR_PAGE_SIZE);
+        }
+
+        MemberCursor memberCursor;
+        try {
+            memberCursor = MemberCursor.decode(cursor);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "invalid cursor", e);
+        }
+        return memberRepository.findMemberDtoByCursor(memberCursor, size);
+    }
+
+    /**
+     * 벌크 import - 요청 body 를 스트림으로 읽으면서 chunk 단위로 batch insert 한다.
+     * curl -X POST -H 'Content-Type: text/csv' --data-binary @members.csv /members/import
+     */
+    @PostMapping(value = "/members/import", consumes = "text/csv")
+    public ImportResult importCsv(InputStream body) {
+        return memberImportService.importCsv(body);
+    }
+
+    @PostMapping(value = "/members/import", consumes = "application/x-ndjson")
+    public ImportResult importNdjson(InputStream body) {
+        return memberImportService.importNdjson(body);
+    }
+
+    /**
+     * 읽을 수 없는 줄 -> 400. 앞의 chunk 는 이미 커밋되었으므로 몇 번째 줄에서 멈췄고 몇 건이 들어갔는지 내려준다.
+     */
+    @ExceptionHandler(MemberImportException.class)
+    public ResponseEntity<ImportFailure> importFailed(MemberImportException e) {
+        return ResponseEntity.badRequest().body(new ImportFailure(e.getLine(), e.getCommittedRows(), e.getMessage()));
+    }
+
+    /**
+     * 전체 회원 export - 디비에서 읽는 대로 한 줄씩 응답에 쓴다. (NDJSON)
+     */
+    @GetMapping(value = "/members/export", produces = "application/x-ndjson")
+    public void export(HttpServletResponse response) throws IOException {
+        response.setContentType("application/x-ndjson");
+        response.setCharacterEncoding("UTF-8");
+        memberExportService.exportNdjson(response.getOutputStream());
     }
 
     @PostConstruct
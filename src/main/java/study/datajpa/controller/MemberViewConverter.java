@@ -0,0 +1,25 @@
+package study.datajpa.controller;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.core.convert.converter.Converter;
+import org.springframework.stereotype.Component;
+import study.datajpa.dto.MemberView;
+import study.datajpa.repository.MemberRepository;
+
+/**
+ * @PathVariable("id") MemberView -> findViewById
+ *
+ * 도메인 클래스 컨버터(@PathVariable Member)는 findById 로 엔티티를 읽어서 OSIV 영속성 컨텍스트에 요청이 끝날 때까지 들고 있다.
+ * (엔티티 + 스냅샷 배열 + 2차 캐시에서 꺼냈으면 재조립) username 하나를 내려주는 데는 DTO 한 개면 충분하다.
+ * 스프링 부트가 Converter 빈을 MVC 변환 서비스에 등록한다. 없는 회원이면 null
+ */
+@Component
+@RequiredArgsConstructor
+public class MemberViewConverter implements Converter<String, MemberView> {
+    private final MemberRepository memberRepository;
+
+    @Override
+    public MemberView convert(String source) {
+        return memberRepository.findViewById(Long.valueOf(source)).orElse(null);
+    }
+}
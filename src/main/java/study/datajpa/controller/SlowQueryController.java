@@ -0,0 +1,30 @@
+package study.datajpa.controller;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import study.datajpa.sql.SlowQuery;
+import study.datajpa.sql.SlowQueryBuffer;
+
+import java.util.List;
+
+/**
+ * 최근 느린 쿼리 (바인딩 값 포함, 최신순)
+ */
+@RestController
+@RequiredArgsConstructor
+public class SlowQueryController {
+    private final SlowQueryBuffer slowQueryBuffer;
+
+    @GetMapping("/sql/slow-queries")
+    public List<SlowQuery> recent(@RequestParam(value = "limit", defaultValue = "50") int limit) {
+        return slowQueryBuffer.recent(Math.max(0, limit));
+    }
+
+    @DeleteMapping("/sql/slow-queries")
+    public void clear() {
+        slowQueryBuffer.clear();
+    }
+}
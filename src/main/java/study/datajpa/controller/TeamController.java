@@ -0,0 +1,25 @@
+package study.datajpa.controller;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.web.PageableDefault;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+import study.datajpa.dto.TeamSummaryDto;
+import study.datajpa.service.TeamSummaryService;
+
+@RestController
+@RequiredArgsConstructor
+public class TeamController {
+    private final TeamSummaryService teamSummaryService;
+
+    /**
+     * /teams/summary?page=0&size=100
+     * 쿼리 수는 팀 수가 아니라 size / default_batch_fetch_size 에 비례한다.
+     */
+    @GetMapping("/teams/summary")
+    public Page<TeamSummaryDto> summary(@PageableDefault(size = 100, sort = "name") Pageable pageable) {
+        return teamSummaryService.summaries(pageable);
+    }
+}
@@ -0,0 +1,22 @@
+package study.datajpa.datasource;
+
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * 요청 하나의 읽기 전용 조회는 같은 replica 에서 읽는다. (ReplicaRoutingDataSource.pin)
+ */
+public class ReplicaPinningFilter extends OncePerRequestFilter {
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        try (ReplicaRoutingDataSource.Scope ignored = ReplicaRoutingDataSource.pin()) {
+            filterChain.doFilter(request, response);
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package study.datajpa.datasource;
+
+import org.hibernate.CacheMode;
+import org.hibernate.Session;
+import org.springframework.transaction.TransactionDefinition;
+import study.datajpa.repository.support.ReadOnlySessionTransactionManager;
+
+/**
+ * 읽기 전용 트랜잭션(replica 로 갈 수 있는)은 2차 캐시/쿼리 캐시를 읽기만 하고 채우지 않는다. (CacheMode.GET)
+ * 늦은 replica 에서 읽은 값이 primary 커밋으로 무효화된 캐시를 다시 채우면 TTL 동안 오래된 값이 나간다.
+ * 캐시는 쓰기 트랜잭션(primary)에서 읽은 값으로만 채워진다.
+ * OSIV 세션의 defaultReadOnly 는 ReadOnlySessionTransactionManager 가 켜고 끈다.
+ */
+public class ReplicaReadTransactionManager extends ReadOnlySessionTransactionManager {
+    @Override
+    protected void doBegin(Object transaction, TransactionDefinition definition) {
+        super.doBegin(transaction, definition);
+        if (definition.isReadOnly()) {
+            Session session = currentSession();
+            if (session != null) {
+                session.setCacheMode(CacheMode.GET);
+            }
+        }
+    }
+
+    @Override
+    protected void doCleanupAfterCompletion(Object transaction) {
+        // OSIV 세션은 요청 동안 계속 쓰이므로 기본값으로 돌려놓는다. (super 가 새로 연 세션을 풀기 전에)
+        Session session = currentSession();
+        if (session != null && session.isOpen() && session.getCacheMode() == CacheMode.GET) {
+            session.setCacheMode(CacheMode.NORMAL);
+        }
+        super.doCleanupAfterCompletion(transaction);
+    }
+}
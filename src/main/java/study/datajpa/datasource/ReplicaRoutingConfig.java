@@ -0,0 +1,126 @@
+package study.datajpa.datasource;
+
+import com.github.gavlyukovskiy.boot.jdbc.decorator.DataSourceDecorator;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.resource.jdbc.spi.PhysicalConnectionHandlingMode;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.autoconfigure.transaction.TransactionManagerCustomizers;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import javax.annotation.PreDestroy;
+import javax.sql.DataSource;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * primary / replica 커넥션 풀 분리 (ReplicaRoutingDataSource)
+ * datajpa.datasource.replica-urls 가 있을 때만 등록된다. 없으면 스프링 부트가 만드는 데이터소스 하나를 그대로 쓴다.
+ *
+ * 풀은 빈으로 등록하지 않는다. DataSource 빈이 하나여야 JPA, JdbcTemplate, p6spy 데코레이터가 이 빈 하나를 쓴다.
+ * 그래서 spring.datasource.hikari.* 대신 url/계정(spring.datasource.*)만 가져다 풀을 만든다.
+ * replica 스키마는 복제로 맞춘다고 보고, ddl-auto 는 primary 에만 적용된다. (트랜잭션 밖 -> primary)
+ *
+ * 스프링은 세션이 닫힐 때까지 커넥션을 잡고 있게 한다. (DELAYED_ACQUISITION_AND_HOLD)
+ * OSIV 로 한 요청이 세션 하나를 쓰면 처음 잡은 커넥션(lazy 프록시가 처음 고른 primary/replica)을 요청 끝까지 쓰게 되므로
+ * 트랜잭션이 끝날 때마다 커넥션을 돌려주게 바꾼다. -> 다음 트랜잭션이 다시 라우팅된다.
+ * 대신 요청 하나는 replica 하나로 고정하고(ReplicaPinningFilter), replica 에서 읽은 값으로 캐시를 채우지 않는다.
+ * (ReplicaReadTransactionManager, MemberUsernameCacheInterceptor)
+ */
+@Configuration
+@ConditionalOnProperty(name = "datajpa.datasource.replica-urls")
+public class ReplicaRoutingConfig {
+    private ReplicaRoutingDataSource routingDataSource;
+
+    @Bean
+    public DataSource dataSource(DataSourceProperties properties,
+                                 ObjectProvider<MeterRegistry> meterRegistry,
+                                 @Value("${datajpa.datasource.replica-urls}") String[] replicaUrls,
+                                 @Value("${datajpa.datasource.health-check-millis:5000}") long healthCheckMillis,
+                                 @Value("${datajpa.datasource.replica-connection-timeout-millis:1000}") long replicaConnectionTimeoutMillis) {
+        MeterRegistry meters = meterRegistry.getIfAvailable();
+        HikariDataSource primary = pool(properties, properties.determineUrl(), ReplicaRoutingDataSource.PRIMARY, meters);
+
+        Map<String, DataSource> replicas = new LinkedHashMap<>();
+        for (int i = 0; i < replicaUrls.length; i++) {
+            String name = "replica-" + i;
+            HikariDataSource replica = pool(properties, replicaUrls[i].trim(), name, meters);
+            replica.setReadOnly(true);
+            // replica 가 죽었을 때 30초(기본값)씩 기다리지 않고 바로 primary 로 넘어간다.
+            replica.setConnectionTimeout(replicaConnectionTimeoutMillis);
+            replicas.put(name, replica);
+        }
+
+        routingDataSource = new ReplicaRoutingDataSource(primary, replicas, healthCheckMillis);
+        routingDataSource.afterPropertiesSet();
+        return routingDataSource;
+    }
+
+    // lazy 프록시는 p6spy 바깥에 씌운다. (lazy 프록시 -> p6spy -> 라우팅)
+    // p6spy 는 커넥션을 받자마자 getMetaData 를 부르므로 lazy 프록시 안쪽에 있으면
+    // 트랜잭션이 readOnly 를 올리기 전에 실제 커넥션(primary)을 잡아버린다.
+    @Bean
+    public DataSourceDecorator lazyConnectionDecorator() {
+        return new LazyConnectionDecorator();
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer replicaConnectionHandling() {
+        return properties -> properties.put(AvailableSettings.CONNECTION_HANDLING,
+                PhysicalConnectionHandlingMode.DELAYED_ACQUISITION_AND_RELEASE_AFTER_TRANSACTION);
+    }
+
+    @Bean
+    public ReplicaPinningFilter replicaPinningFilter() {
+        return new ReplicaPinningFilter();
+    }
+
+    // 스프링 부트의 JpaTransactionManager 대신 등록된다. (@ConditionalOnMissingBean)
+    @Bean
+    public PlatformTransactionManager transactionManager(ObjectProvider<TransactionManagerCustomizers> customizers) {
+        ReplicaReadTransactionManager transactionManager = new ReplicaReadTransactionManager();
+        customizers.ifAvailable(each -> each.customize(transactionManager));
+        return transactionManager;
+    }
+
+    @PreDestroy
+    public void close() {
+        if (routingDataSource != null) {
+            routingDataSource.close();
+        }
+    }
+
+    private static class LazyConnectionDecorator implements DataSourceDecorator, Ordered {
+        @Override
+        public DataSource decorate(String beanName, DataSource dataSource) {
+            return new LazyConnectionDataSourceProxy(dataSource);
+        }
+
+        @Override
+        public int getOrder() {
+            return Ordered.LOWEST_PRECEDENCE; // 데코레이터는 순서대로 감싸므로 마지막이 맨 바깥이다.
+        }
+    }
+
+    private HikariDataSource pool(DataSourceProperties properties, String url, String name, MeterRegistry meters) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder()
+                .type(HikariDataSource.class)
+                .url(url)
+                .build();
+        dataSource.setPoolName(name);
+        // 풀이 빈이 아니라서 스프링 부트가 hikaricp_* 지표를 붙여주지 않는다. (pool 태그로 구분)
+        if (meters != null) {
+            dataSource.setMetricRegistry(meters);
+        }
+        return dataSource;
+    }
+}
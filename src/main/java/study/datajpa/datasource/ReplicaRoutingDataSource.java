@@ -0,0 +1,236 @@
+package study.datajpa.datasource;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 읽기 전용 트랜잭션은 replica 로, 나머지(쓰기 트랜잭션, 트랜잭션 밖)는 primary 로 보낸다.
+ *
+ * 커넥션을 고르는 시점에 트랜잭션이 읽기 전용인지 알아야 하므로 LazyConnectionDataSourceProxy 뒤에 둔다.
+ * (JpaTransactionManager 는 readOnly 를 TransactionSynchronizationManager 에 올리기 전에 커넥션을 받는다.
+ *  lazy 프록시는 첫 SQL 을 실행할 때 여기서 실제 커넥션을 꺼낸다)
+ *
+ * - replica 가 여러 개면 돌아가면서 쓴다. 단 pin() 범위(웹 요청 하나, ReplicaPinningFilter) 안에서는 처음 고른 곳만 쓴다.
+ *   요청 안의 조회들이 복제 지연이 다른 replica 에서 섞여 나오지 않게 한다. (조건부 GET 의 검증값과 본문 등)
+ * - primary() 범위 안에서는 읽기 전용이어도 primary 로 읽는다. (캐시를 채우는 조회, MemberUsernameCacheInterceptor)
+ * - health-check-millis 마다 replica 를 검사(isValid)하고, 죽은 replica 는 건너뛴다. 살아나면 다시 쓴다.
+ * - 커넥션을 얻다가 실패하면 그 replica 를 바로 죽은 것으로 보고 primary 커넥션을 준다.
+ * - 살아있는 replica 가 없으면 primary 로 읽는다.
+ * replica 는 복제 지연만큼 늦을 수 있다. 방금 쓴 것을 바로 읽어야 하면 쓰기 트랜잭션 안에서 읽는다.
+ */
+@Slf4j
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+    static final String PRIMARY = "primary";
+    private static final int VALIDATION_TIMEOUT_SECONDS = 1;
+    // 스레드에 묶인 라우팅 범위. 컨텍스트(인스턴스)가 여러 개여도 같은 이름(primary, replica-n)으로 고른다.
+    private static final ThreadLocal<Pin> PIN = new ThreadLocal<>();
+    private static final ThreadLocal<Boolean> PRIMARY_FORCED = new ThreadLocal<>();
+
+    private final DataSource primary;
+    private final List<Replica> replicas = new ArrayList<>();
+    private final Map<String, Replica> replicasByName = new HashMap<>();
+    private final AtomicInteger next = new AtomicInteger();
+    private final long healthCheckMillis;
+    private final ScheduledExecutorService healthChecker;
+
+    public ReplicaRoutingDataSource(DataSource primary, Map<String, DataSource> replicas, long healthCheckMillis) {
+        this.primary = primary;
+        this.healthCheckMillis = healthCheckMillis;
+
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(PRIMARY, primary);
+        replicas.forEach((name, dataSource) -> {
+            Replica replica = new Replica(name, dataSource);
+            this.replicas.add(replica);
+            this.replicasByName.put(name, replica);
+            targets.put(name, dataSource);
+        });
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+
+        this.healthChecker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "replica-health-check");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        super.afterPropertiesSet();
+        // 시작하자마자 죽은 replica 로 가지 않도록 한 번 검사하고 시작한다.
+        checkHealth();
+        healthChecker.scheduleWithFixedDelay(this::checkHealth, healthCheckMillis, healthCheckMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 범위 안의 읽기 전용 트랜잭션은 처음 고른 곳(replica 또는 primary)만 쓴다. 이미 열려 있으면 바깥 범위를 따른다.
+     * 고른 replica 가 죽으면 다른 replica 가 아니라 primary 로 간다. (더 늦은 replica 로 가면 시간이 거꾸로 간다)
+     */
+    public static Scope pin() {
+        if (PIN.get() != null) {
+            return () -> {
+            };
+        }
+        PIN.set(new Pin());
+        return PIN::remove;
+    }
+
+    /**
+     * 범위 안에서는 읽기 전용 트랜잭션도 primary 로 읽는다. 커넥션을 잡기 전(트랜잭션의 첫 SQL 전)에 열어야 한다.
+     */
+    public static Scope primary() {
+        Boolean previous = PRIMARY_FORCED.get();
+        PRIMARY_FORCED.set(Boolean.TRUE);
+        return () -> {
+            if (previous == null) {
+                PRIMARY_FORCED.remove();
+            } else {
+                PRIMARY_FORCED.set(previous);
+            }
+        };
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly() || PRIMARY_FORCED.get() != null) {
+            return PRIMARY;
+        }
+        Pin pin = PIN.get();
+        if (pin != null && pin.key != null) {
+            Replica pinned = replicasByName.get(pin.key);
+            return pinned != null && pinned.healthy ? pinned.name : PRIMARY;
+        }
+        Replica replica = nextHealthy();
+        String key = replica == null ? PRIMARY : replica.name;
+        if (pin != null) {
+            pin.key = key;
+        }
+        return key;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        Object key = determineCurrentLookupKey();
+        if (PRIMARY.equals(key)) {
+            return primary.getConnection();
+        }
+        Replica replica = replicasByName.get(key);
+        try {
+            return replica.dataSource.getConnection();
+        } catch (SQLException e) {
+            markDown(replica, e);
+            return primary.getConnection();
+        }
+    }
+
+    /**
+     * 살아있는 replica 이름 (테스트, 모니터링용)
+     */
+    public List<String> healthyReplicas() {
+        List<String> names = new ArrayList<>();
+        for (Replica replica : replicas) {
+            if (replica.healthy) {
+                names.add(replica.name);
+            }
+        }
+        return names;
+    }
+
+    void checkHealth() {
+        for (Replica replica : replicas) {
+            try (Connection connection = replica.dataSource.getConnection()) {
+                if (connection.isValid(VALIDATION_TIMEOUT_SECONDS)) {
+                    markUp(replica);
+                } else {
+                    markDown(replica, null);
+                }
+            } catch (SQLException e) {
+                markDown(replica, e);
+            } catch (RuntimeException e) {
+                // 검사 스레드가 죽으면 다시 살아난 replica 를 쓰지 못한다.
+                markDown(replica, e);
+            }
+        }
+    }
+
+    public void close() {
+        healthChecker.shutdownNow();
+        close(primary);
+        for (Replica replica : replicas) {
+            close(replica.dataSource);
+        }
+    }
+
+    private Replica nextHealthy() {
+        int size = replicas.size();
+        int start = Math.floorMod(next.getAndIncrement(), Math.max(size, 1));
+        for (int i = 0; i < size; i++) {
+            Replica replica = replicas.get((start + i) % size);
+            if (replica.healthy) {
+                return replica;
+            }
+        }
+        return null;
+    }
+
+    private void markUp(Replica replica) {
+        if (!replica.healthy) {
+            replica.healthy = true;
+            log.info("replica {} is up", replica.name);
+        }
+    }
+
+    private void markDown(Replica replica, Exception cause) {
+        if (replica.healthy) {
+            replica.healthy = false;
+            log.warn("replica {} is down, reading from primary until it recovers: {}", replica.name,
+                    cause == null ? "connection is not valid" : cause.getMessage());
+        }
+    }
+
+    private void close(DataSource dataSource) {
+        if (dataSource instanceof AutoCloseable) {
+            try {
+                ((AutoCloseable) dataSource).close();
+            } catch (Exception e) {
+                log.warn("failed to close datasource", e);
+            }
+        }
+    }
+
+    /**
+     * try-with-resources 용 (close 에서 예외를 던지지 않는다)
+     */
+    @FunctionalInterface
+    public interface Scope extends AutoCloseable {
+        @Override
+        void close();
+    }
+
+    private static class Pin {
+        private String key;
+    }
+
+    private static class Replica {
+        private final String name;
+        private final DataSource dataSource;
+        // 처음 검사 전까지는 살아있다고 본다.
+        private volatile boolean healthy = true;
+
+        Replica(String name, DataSource dataSource) {
+            this.name = name;
+            this.dataSource = dataSource;
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package study.datajpa.dto;
+
+import lombok.Getter;
+import lombok.ToString;
+import study.datajpa.entity.BulkJobStatus;
+
+@Getter
+@ToString
+public class BulkJobProgress {
+    private final String jobName;
+    private final BulkJobStatus status;
+    private final int totalChunks;
+    private final long completedChunks;
+    private final long updatedRows;
+
+    public BulkJobProgress(String jobName, BulkJobStatus status, int totalChunks, long completedChunks, long updatedRows) {
+        this.jobName = jobName;
+        this.status = status;
+        this.totalChunks = totalChunks;
+        this.completedChunks = completedChunks;
+        this.updatedRows = updatedRows;
+    }
+}
@@ -0,0 +1,24 @@
+package study.datajpa.dto;
+
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * keyset 페이징 결과
+ * 페이지 번호, totalCount 대신 다음 페이지를 요청할 next 토큰만 내려준다. (count 쿼리 없음)
+ */
+@Getter
+public class CursorResult<T> {
+    private final List<T> content;
+    private final String next;
+
+    public CursorResult(List<T> content, String next) {
+        this.content = content;
+        this.next = next;
+    }
+
+    public boolean hasNext() {
+        return next != null;
+    }
+}
@@ -0,0 +1,21 @@
+package study.datajpa.dto;
+
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * import 실패 응답. line 앞의 row 중 committedRows 건은 이미 커밋되었다.
+ */
+@Getter
+@ToString
+public class ImportFailure {
+    private final long line;
+    private final long committedRows;
+    private final String message;
+
+    public ImportFailure(long line, long committedRows, String message) {
+        this.line = line;
+        this.committedRows = committedRows;
+        this.message = message;
+    }
+}
@@ -0,0 +1,52 @@
+package study.datajpa.dto;
+
+import lombok.Getter;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * keyset(seek) 페이징의 커서
+ * 마지막으로 본 정렬 키(username, null 일 수 있다) + member_id 를 담는다.
+ * 클라이언트에는 내부 구조를 노출하지 않도록 불투명한 토큰(base64)으로 내보낸다.
+ */
+@Getter
+public class MemberCursor {
+    private final String username;
+    private final Long id;
+
+    public MemberCursor(String username, Long id) {
+        this.username = username;
+        this.id = id;
+    }
+
+    public String encode() {
+        // username 에 ':' 이 들어갈 수 있으므로 id 를 앞에 둔다. username 이 null 이면 구분자 없이 id 만
+        String raw = username == null ? String.valueOf(id) : id + ":" + username;
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 빈 토큰은 첫 페이지(null)를 의미한다.
+     */
+    public static MemberCursor decode(String token) {
+        if (token == null || token.isEmpty()) {
+            return null;
+        }
+        String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+        int separator = raw.indexOf(':');
+        if (separator < 0) {
+            return new MemberCursor(null, parseId(raw, token));
+        }
+        return new MemberCursor(raw.substring(separator + 1), parseId(raw.substring(0, separator), token));
+    }
+
+    private static Long parseId(String id, String token) {
+        try {
+            return Long.valueOf(id);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("invalid cursor: " + token, e);
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package study.datajpa.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 벌크 import 의 한 줄 (csv: username,age,teamName / ndjson: {"username":..,"age":..,"teamName":..})
+ */
+@Data
+@NoArgsConstructor
+public class MemberImportRow {
+    private String username;
+    private int age;
+    private String teamName;
+
+    public MemberImportRow(String username, int age, String teamName) {
+        this.username = username;
+        this.age = age;
+        this.teamName = teamName;
+    }
+}
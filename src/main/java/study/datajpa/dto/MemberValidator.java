@@ -0,0 +1,23 @@
+package study.datajpa.dto;
+
+import lombok.Getter;
+import lombok.ToString;
+
+import java.time.LocalDateTime;
+
+/**
+ * 조건부 GET(ETag / Last-Modified) 판단용. 회원 엔티티 대신 세 컬럼만 읽는다.
+ */
+@Getter
+@ToString
+public class MemberValidator {
+    private final Long id;
+    private final Long version;
+    private final LocalDateTime lastModifiedDate;
+
+    public MemberValidator(Long id, Long version, LocalDateTime lastModifiedDate) {
+        this.id = id;
+        this.version = version;
+        this.lastModifiedDate = lastModifiedDate;
+    }
+}
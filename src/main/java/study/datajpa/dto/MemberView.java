@@ -0,0 +1,20 @@
+package study.datajpa.dto;
+
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * 조회 전용 회원 (MemberController /members/{id}, /members2/{id})
+ * select new 로 바로 만들므로 영속성 컨텍스트에 올라가지 않는다. (스냅샷, 지연로딩 프록시 없음)
+ */
+@Getter
+@ToString
+public class MemberView {
+    private final Long id;
+    private final String username;
+
+    public MemberView(Long id, String username) {
+        this.id = id;
+        this.username = username;
+    }
+}
@@ -0,0 +1,22 @@
+package study.datajpa.dto;
+
+import lombok.Data;
+import study.datajpa.entity.Team;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+@Data
+public class TeamSummaryDto {
+    private Long id;
+    private String name;
+    private List<MemberDto> members;
+
+    public TeamSummaryDto(Team team) {
+        this.id = team.getId();
+        this.name = team.getName();
+        this.members = team.getMembers().stream()
+                .map(MemberDto::new)
+                .collect(Collectors.toList());
+    }
+}
@@ -5,14 +5,12 @@ import org.springframework.data.annotation.CreatedBy;
 import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.annotation.LastModifiedBy;
 import org.springframework.data.annotation.LastModifiedDate;
-import org.springframework.data.jpa.domain.support.AuditingEntityListener;
 
 import javax.persistence.Column;
-import javax.persistence.EntityListeners;
 import javax.persistence.MappedSuperclass;
 import java.time.LocalDateTime;
 
-@EntityListeners(AuditingEntityListener.class) // DataJpaApplication 확인
+// 리스너(AuditListener)는 BaseTimeEntity 에서 상속된다. 다시 선언하면 콜백이 두 번 호출된다.
 @MappedSuperclass
 @Getter
 public class BaseEntity extends BaseTimeEntity {
@@ -3,7 +3,7 @@ package study.datajpa.entity;
 import lombok.Getter;
 import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.annotation.LastModifiedDate;
-import org.springframework.data.jpa.domain.support.AuditingEntityListener;
+import study.datajpa.audit.AuditListener;
 
 import javax.persistence.Column;
 import javax.persistence.EntityListeners;
@@ -11,7 +11,7 @@ import javax.persistence.MappedSuperclass;
 import java.time.LocalDateTime;
 
 
-@EntityListeners(AuditingEntityListener.class) // DataJpaApplication 확인
+@EntityListeners(AuditListener.class) // DataJpaApplication 확인
 @MappedSuperclass
 @Getter
 public class BaseTimeEntity {
@@ -0,0 +1,51 @@
+package study.datajpa.entity;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * 청크로 나눠서 실행하는 벌크 업데이트 작업 하나.
+ * 시작할 때의 member_id 범위와 청크 크기를 저장해 두고, 재시작할 때도 같은 경계로 나눈다.
+ * 실행 중에는 owner 와 leaseUntil 로 실행하는 쪽을 하나로 제한한다. (MemberBulkUpdateService 확인)
+ */
+@Entity
+@Getter
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+public class BulkJob extends BaseTimeEntity {
+    @Id
+    @Column(name = "job_name")
+    private String name;
+    private String description; // 같은 이름으로 다른 업데이트를 재시작하지 않도록 비교용
+    private long minId;
+    private long maxId;
+    private int chunkSize;
+
+    @Enumerated(EnumType.STRING)
+    private BulkJobStatus status;
+
+    private String owner; // 실행 중인 쪽의 토큰. 실행 중이 아니면 null
+    private LocalDateTime leaseUntil; // 이 시각까지 갱신이 없으면 owner 가 죽은 것으로 보고 다른 쪽이 이어받는다.
+
+    public BulkJob(String name, String description, long minId, long maxId, int chunkSize,
+                   String owner, LocalDateTime leaseUntil) {
+        this.name = name;
+        this.description = description;
+        this.minId = minId;
+        this.maxId = maxId;
+        this.chunkSize = chunkSize;
+        this.status = BulkJobStatus.RUNNING;
+        this.owner = owner;
+        this.leaseUntil = leaseUntil;
+    }
+
+    public int getTotalChunks() {
+        if (maxId < minId) {
+            return 0;
+        }
+        return (int) ((maxId - minId) / chunkSize + 1);
+    }
+}
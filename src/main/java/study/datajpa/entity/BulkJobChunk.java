@@ -0,0 +1,41 @@
+package study.datajpa.entity;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+
+import javax.persistence.*;
+
+/**
+ * 커밋된 청크 하나. 업데이트와 같은 트랜잭션에서 insert 하므로 이 row 가 있으면 그 범위는 반영된 것이다.
+ * (job_name, from_id) 유니크 제약 -> 두 노드가 같은 작업을 재시작해도 같은 청크가 두 번 반영되지 않는다.
+ */
+@Entity
+@Table(uniqueConstraints = @UniqueConstraint(name = "uk_bulk_job_chunk", columnNames = {"job_name", "from_id"}))
+@Getter
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+public class BulkJobChunk {
+    @Id
+    @GeneratedValue(generator = "bulk_job_chunk_seq_generator")
+    @GenericGenerator(name = "bulk_job_chunk_seq_generator", strategy = "study.datajpa.entity.PooledSequenceGenerator",
+            parameters = @Parameter(name = SequenceStyleGenerator.SEQUENCE_PARAM, value = "bulk_job_chunk_seq"))
+    @Column(name = "bulk_job_chunk_id")
+    private Long id;
+
+    @Column(name = "job_name")
+    private String jobName;
+    @Column(name = "from_id")
+    private long fromId;
+    private long toId;
+    private int updatedRows;
+
+    public BulkJobChunk(String jobName, long fromId, long toId, int updatedRows) {
+        this.jobName = jobName;
+        this.fromId = fromId;
+        this.toId = toId;
+        this.updatedRows = updatedRows;
+    }
+}
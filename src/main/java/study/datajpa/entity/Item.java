@@ -4,7 +4,7 @@ import lombok.AccessLevel;
 import lombok.NoArgsConstructor;
 import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.domain.Persistable;
-import org.springframework.data.jpa.domain.support.AuditingEntityListener;
+import study.datajpa.audit.AuditListener;
 
 import javax.persistence.Entity;
 import javax.persistence.EntityListeners;
@@ -22,7 +22,7 @@ import java.time.LocalDateTime;
  */
 
 @Entity
-@EntityListeners(AuditingEntityListener.class)
+@EntityListeners(AuditListener.class)
 @NoArgsConstructor(access = AccessLevel.PROTECTED)
 public class Item implements Persistable<String> {
     @Id
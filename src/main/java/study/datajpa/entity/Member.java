@@ -4,21 +4,62 @@ import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
 
 import javax.persistence.*;
 
 @Entity
+@Table(indexes = {
+        // findByUsername, findByNames, findUser, findByUsernameAndAgeGreaterThan, findLockByUsername ...
+        @Index(name = "idx_member_username", columnList = "username"),
+        // findByAge(Pageable), MemberJpaRepository.findByPage (where age = ? order by username) / totalCount
+        // age 단독 조건도 이 인덱스의 앞부분으로 처리되므로 age 인덱스는 따로 두지 않는다.
+        @Index(name = "idx_member_age_username", columnList = "age, username"),
+        // 팀의 회원 목록 (team.members, batch fetch)
+        @Index(name = "idx_member_team_id", columnList = "team_id")
+})
+// MemberJpaRepository 용 named query. 애플리케이션 시작 시 한 번 파싱/검증되고 쿼리 플랜 캐시에 올라간다.
+// 이름을 Member.jpa.* 로 둔 이유: Member.{메서드 이름} 이면 스프링 데이터가 MemberRepository 의 같은 이름 메서드에 가져다 쓴다.
+@NamedQueries({
+        @NamedQuery(name = "Member.jpa.findAll", query = "select m from Member m"),
+        @NamedQuery(name = "Member.jpa.count", query = "select count(m) from Member m"),
+        @NamedQuery(name = "Member.jpa.findByUsernameAndAgeGreaterThan",
+                query = "select m from Member m where m.username = :username and m.age > :age"),
+        @NamedQuery(name = "Member.jpa.findByPage",
+                query = "select m from Member m where m.age = :age order by m.username desc"),
+        @NamedQuery(name = "Member.jpa.totalCount", query = "select count(m) from Member m where m.age = :age"),
+        @NamedQuery(name = "Member.jpa.bulkAgePlus",
+                query = "update Member m set m.age = m.age + 1, m.version = m.version + 1," +
+                        " m.lastModifiedDate = current_timestamp where m.age >= :age"),
+        @NamedQuery(name = "Member.jpa.bulkAgePlusRange",
+                query = "update Member m set m.age = m.age + 1, m.version = m.version + 1," +
+                        " m.lastModifiedDate = current_timestamp where m.age >= :age and m.id between :fromId and :toId")
+})
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "member") // Team.members 컬렉션 캐시의 원소
 @Getter
 @Setter
 @NoArgsConstructor(access = AccessLevel.PROTECTED)
 public class Member extends BaseEntity {
     @Id
-    @GeneratedValue
+    @GeneratedValue(generator = "member_seq_generator")
+    @GenericGenerator(name = "member_seq_generator", strategy = "study.datajpa.entity.PooledSequenceGenerator",
+            parameters = @Parameter(name = SequenceStyleGenerator.SEQUENCE_PARAM, value = "member_seq"))
     @Column(name = "member_id")
     private Long id;
     private String username;
     private int age;
 
+    // 낙관적 락: 같은 회원을 동시에 수정하면 늦게 커밋하는 쪽이 실패한다. (OptimisticRetryTemplate 로 재시도)
+    // 래퍼 타입이라 null 이면 스프링 데이터가 새 엔티티로 판단한다.
+    @Version
+    @Setter(AccessLevel.NONE)
+    private Long version;
+
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "team_id")
     private Team team;
@@ -0,0 +1,49 @@
+package study.datajpa.entity;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * 회원 단위 작업 큐의 항목 하나. 여러 워커가 MemberTaskRepository.claim() 으로 겹치지 않게 나눠 가져간다.
+ */
+@Entity
+@Getter
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+public class MemberTask {
+    @Id
+    @GeneratedValue(generator = "member_task_seq_generator")
+    @GenericGenerator(name = "member_task_seq_generator", strategy = "study.datajpa.entity.PooledSequenceGenerator",
+            parameters = @Parameter(name = SequenceStyleGenerator.SEQUENCE_PARAM, value = "member_task_seq"))
+    @Column(name = "member_task_id")
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "member_id")
+    private Member member;
+
+    @Enumerated(EnumType.STRING)
+    private MemberTaskStatus status;
+
+    private String owner; // 가져간 워커
+    private String claimToken; // claim() 한 번을 구분 (SKIP LOCKED 를 못 쓰는 디비용)
+    private LocalDateTime claimedAt;
+
+    public MemberTask(Member member) {
+        this.member = member;
+        this.status = MemberTaskStatus.PENDING;
+    }
+
+    public void claim(String owner, String claimToken, LocalDateTime claimedAt) {
+        this.status = MemberTaskStatus.CLAIMED;
+        this.owner = owner;
+        this.claimToken = claimToken;
+        this.claimedAt = claimedAt;
+    }
+}
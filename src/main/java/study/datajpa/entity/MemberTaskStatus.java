@@ -0,0 +1,5 @@
+package study.datajpa.entity;
+
+public enum MemberTaskStatus {
+    PENDING, CLAIMED, DONE
+}
@@ -0,0 +1,20 @@
+package study.datajpa.repository;
+
+import study.datajpa.entity.Item;
+
+import java.util.Collection;
+
+public interface ItemRepositoryCustom {
+    /**
+     * 새 item 만 batch insert 한다. 이미 있는 id 가 섞여 있으면 예외가 난다.
+     */
+    void saveAllInBatch(Collection<Item> items);
+
+    /**
+     * 이미 있을 수도 있는 item 을 MERGE 로 batch upsert 한다. (없는 것만 insert, 있는 것은 그대로)
+     *
+     * @return 새로 insert 된 수. 드라이버가 batch 결과로 row 수를 알려주지 않으면 (rewriteBatchedStatements 등)
+     *         알 수 없으므로 java.sql.Statement.SUCCESS_NO_INFO (-2)
+     */
+    int upsertAllInBatch(Collection<Item> items);
+}
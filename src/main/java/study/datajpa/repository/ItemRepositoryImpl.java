@@ -0,0 +1,90 @@
+package study.datajpa.repository;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+import study.datajpa.entity.Item;
+
+import javax.persistence.EntityManager;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Item 은 id 를 직접 할당하기 때문에 save() 가 merge() 로 가지 않도록 Persistable 을 구현했다.
+ * 그래도 save() 는 한 건씩 insert 하고, 이미 있는 item 을 다시 넣으면 실패한다.
+ *
+ * saveAllInBatch: persist 후 batch_size 마다 flush 하고 넣은 item 만 detach -> JDBC batch insert
+ *   (em.clear() 는 바깥 트랜잭션이 읽어둔 엔티티까지 준영속으로 만들어서 변경 감지가 사라진다)
+ * upsertAllInBatch: 디비의 MERGE 문을 JDBC batch 로 보낸다. row 마다 select 후 insert 하지 않는다.
+ */
+public class ItemRepositoryImpl implements ItemRepositoryCustom {
+    // 표준 MERGE (H2, oracle, sql server 등). 매칭되는 row 는 건드리지 않으므로 created_date 도 처음 값이 유지된다.
+    private static final String UPSERT_SQL = "merge into item t" +
+            " using (select cast(? as varchar(255)) as id, cast(? as timestamp) as created_date) s" +
+            " on (t.id = s.id)" +
+            " when not matched then insert (id, created_date) values (s.id, s.created_date)";
+
+    private final EntityManager em;
+    private final JdbcTemplate jdbcTemplate;
+    private final int batchSize;
+
+    public ItemRepositoryImpl(EntityManager em, JdbcTemplate jdbcTemplate,
+                              @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:1000}") int batchSize) {
+        this.em = em;
+        this.jdbcTemplate = jdbcTemplate;
+        this.batchSize = batchSize;
+    }
+
+    @Override
+    @Transactional
+    public void saveAllInBatch(Collection<Item> items) {
+        List<Item> written = new ArrayList<>(Math.min(batchSize, items.size()));
+        for (Item item : items) {
+            em.persist(item);
+            written.add(item);
+            if (written.size() == batchSize) {
+                flushAndDetach(written);
+            }
+        }
+        flushAndDetach(written);
+    }
+
+    private void flushAndDetach(List<Item> written) {
+        em.flush();
+        for (Item item : written) {
+            em.detach(item);
+        }
+        written.clear();
+    }
+
+    @Override
+    @Transactional
+    public int upsertAllInBatch(Collection<Item> items) {
+        // 같은 트랜잭션에서 persist 한 것이 먼저 디비에 들어가야 MERGE 가 본다.
+        em.flush();
+
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        int[][] results = jdbcTemplate.batchUpdate(UPSERT_SQL, items, batchSize, (ps, item) -> {
+            ps.setString(1, item.getId());
+            ps.setTimestamp(2, now);
+        });
+
+        int inserted = 0;
+        for (int[] chunk : results) {
+            for (int rows : chunk) {
+                // 한 건이라도 row 수를 모르면 합계도 모른다. (0 으로 세면 "전부 이미 있었다" 로 읽힌다)
+                if (rows == Statement.SUCCESS_NO_INFO) {
+                    return Statement.SUCCESS_NO_INFO;
+                }
+                if (rows > 0) {
+                    inserted += rows;
+                }
+            }
+        }
+        return inserted;
+    }
+}
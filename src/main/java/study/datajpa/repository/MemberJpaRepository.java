@@ -1,17 +1,26 @@
 package study.datajpa.repository;
 
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Repository;
 import study.datajpa.entity.Member;
+import study.datajpa.repository.support.MemberUsernameCache;
 
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
 import java.util.List;
 import java.util.Optional;
 
+/**
+ * 쿼리는 Member 의 @NamedQuery (Member.jpa.*) 를 쓴다.
+ * named query 는 애플리케이션 시작 시 파싱/검증되어 플랜 캐시에 올라가므로 호출마다 캐시에서 찾기만 한다. (첫 호출부터 hit)
+ * 이름이 틀리거나 JPQL 이 잘못되면 애플리케이션 시작 시 실패한다.
+ */
 @Repository
 public class MemberJpaRepository {
     @PersistenceContext
     private EntityManager em;
+    @Autowired
+    private MemberUsernameCache memberUsernameCache;
 
     public Member save(Member member) {
         em.persist(member);
@@ -23,7 +32,7 @@ public class MemberJpaRepository {
     }
 
     public List<Member> findAll() {
-        return em.createQuery("select m from Member m", Member.class)
+        return em.createNamedQuery("Member.jpa.findAll", Member.class)
                 .getResultList();
     }
 
@@ -33,7 +42,7 @@ public class MemberJpaRepository {
     }
 
     public long count() {
-        return em.createQuery("select count(m) from Member m", Long.class)
+        return em.createNamedQuery("Member.jpa.count", Long.class)
                 .getSingleResult();
     }
 
@@ -42,14 +51,14 @@ public class MemberJpaRepository {
     }
 
     public List<Member> findByUsernameAndAgeGreaterThan(String username, int age) {
-        return em.createQuery("select m from Member m where m.username = :username and m.age > :age")
+        return em.createNamedQuery("Member.jpa.findByUsernameAndAgeGreaterThan", Member.class)
                 .setParameter("username", username)
                 .setParameter("age", age)
                 .getResultList();
     }
 
     public List<Member> findByPage(int age, int offset, int limit) {
-        return em.createQuery("select m from Member m where m.age = :age order by m.username desc")
+        return em.createNamedQuery("Member.jpa.findByPage", Member.class)
                 .setParameter("age", age)
                 .setFirstResult(offset)
                 .setMaxResults(limit)
@@ -57,14 +66,27 @@ public class MemberJpaRepository {
     }
 
     public long totalCount(int age) {
-        return em.createQuery("select count(m) from Member m where m.age = :age", Long.class)
+        return em.createNamedQuery("Member.jpa.totalCount", Long.class)
                 .setParameter("age", age)
                 .getSingleResult();
     }
 
+    // 벌크 쿼리는 하이버네이트 이벤트가 없으므로 username 캐시를 직접 비운다. (MemberRepository 는 @Modifying 으로 처리)
     public int bulkAgePlus(int age) {
-        return em.createQuery("update Member m set m.age = m.age + 1 where m.age >= :age")
+        int updated = em.createNamedQuery("Member.jpa.bulkAgePlus")
                 .setParameter("age", age)
                 .executeUpdate();
+        memberUsernameCache.invalidateAll();
+        return updated;
     }
-}
\ No newline at end of file
+
+    public int bulkAgePlus(int age, long fromId, long toId) {
+        int updated = em.createNamedQuery("Member.jpa.bulkAgePlusRange")
+                .setParameter("age", age)
+                .setParameter("fromId", fromId)
+                .setParameter("toId", toId)
+                .executeUpdate();
+        memberUsernameCache.invalidateAll();
+        return updated;
+    }
+}
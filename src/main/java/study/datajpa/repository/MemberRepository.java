@@ -5,15 +5,25 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.*;
 import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 import study.datajpa.dto.MemberDto;
+import study.datajpa.dto.MemberValidator;
+import study.datajpa.dto.MemberView;
 import study.datajpa.entity.Member;
 
 import javax.persistence.LockModeType;
 import javax.persistence.QueryHint;
-import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
+/**
+ * 쿼리 메서드는 기본으로 읽기 전용 트랜잭션에서 실행한다. (스프링 데이터는 쿼리 메서드에 트랜잭션을 걸어주지 않는다)
+ * 읽기 전용 트랜잭션이면 HibernateJpaDialect 가 세션을 defaultReadOnly + FlushMode.MANUAL 로 바꾼다. (OSIV 세션은 ReadOnlySessionTransactionManager)
+ * -> 읽은 엔티티의 스냅샷(loadedState)을 남기지 않고, 커밋할 때 flush(dirty checking)도 하지 않는다.
+ * 바깥에 쓰기 트랜잭션이 있으면 거기에 참여하므로 서비스의 변경 감지는 그대로다.
+ * 디비를 바꾸는 메서드(@Modifying, 락)는 @Transactional 로 다시 쓰기 트랜잭션을 건다.
+ */
+@Transactional(readOnly = true)
 public interface MemberRepository extends JpaRepository<Member, Long>, MemberRepositoryCustom {
     List<Member> findByUsernameAndAgeGreaterThan(String username, int age);
 
@@ -31,8 +41,20 @@ public interface MemberRepository extends JpaRepository<Member, Long>, MemberRep
     @Query("select new study.datajpa.dto.MemberDto(m.id, m.username, t.name) from Member m join m.team t")
     List<MemberDto> findMemberDto();
 
-    @Query("select m from Member m where m.username in :names")
-    List<Member> findByNames(@Param("names") Collection<String> names);
+    // 페이징 DTO 조회: 팀 이름까지 join 으로 한 번에 가져온다. (엔티티 -> DTO 변환 시 team 지연로딩 N+1 방지)
+    // 카운트 쿼리는 join 이 필요 없으므로 회원만 센다. => 페이지 하나에 쿼리 2번
+    @Query(value = "select new study.datajpa.dto.MemberDto(m.id, m.username, t.name) from Member m left join m.team t",
+            countQuery = "select count(m) from Member m")
+    Page<MemberDto> findMemberDtoPage(Pageable pageable);
+
+    // 조건부 GET(MemberConditionalGetInterceptor) 용: 엔티티를 읽지 않고 version, 수정 시간만
+    @Query("select new study.datajpa.dto.MemberValidator(m.id, m.version, m.lastModifiedDate)" +
+            " from Member m where m.id = :id")
+    Optional<MemberValidator> findValidatorById(@Param("id") Long id);
+
+    // 조회 전용 단건 (MemberViewConverter): DTO 로 바로 받아서 영속성 컨텍스트에 올리지 않는다.
+    @Query("select new study.datajpa.dto.MemberView(m.id, m.username) from Member m where m.id = :id")
+    Optional<MemberView> findViewById(@Param("id") Long id);
 
     List<Member> findListByUsername(String username); // 컬렉션
 
@@ -52,10 +74,22 @@ public interface MemberRepository extends JpaRepository<Member, Long>, MemberRep
     List<Member> findListByAge(int age, Pageable pageable);
 
     // (clearAutomatically = true) => em.clear() 기능
+    // 벌크 업데이트는 @Version 을 올려주지 않으므로 직접 올린다. (동시에 수정 중인 쪽이 낙관적 락으로 실패하도록)
+    // 수정 시간도 감사 리스너를 거치지 않으므로 직접 바꾼다. (Last-Modified 가 바뀌도록)
+    @Transactional
     @Modifying(clearAutomatically = true) // excuteUpdate()와 동일한 기능
-    @Query("update Member m set m.age = m.age + 1 where m.age >= :age")
+    @Query("update Member m set m.age = m.age + 1, m.version = m.version + 1," +
+            " m.lastModifiedDate = current_timestamp where m.age >= :age")
     int bulkAgePlus(@Param("age") int age);
 
+    // member_id 범위 하나만 업데이트 (MemberBulkUpdateService 가 청크 단위로 호출)
+    // 영속성 컨텍스트는 호출하는 쪽에서 범위 안의 회원만 detach 한다.
+    @Transactional
+    @Modifying
+    @Query("update Member m set m.age = m.age + 1, m.version = m.version + 1, m.lastModifiedDate = current_timestamp" +
+            " where m.age >= :age and m.id between :fromId and :toId")
+    int bulkAgePlus(@Param("age") int age, @Param("fromId") long fromId, @Param("toId") long toId);
+
     // fetch join 하는 방법은 여러가지가 있다.
     // 1. team 을 fetch join 하고 싶을 때, 일반 @Query 로 하는 법
     @Query("select m from Member m left join fetch m.team")
@@ -75,6 +109,11 @@ public interface MemberRepository extends JpaRepository<Member, Long>, MemberRep
     Member findReadOnlyByUsername(String username);
 
     // select for update (lock)
+    // 락을 기다리는 시간을 제한한다. (oracle: for update wait n, H2 는 url 의 LOCK_TIMEOUT 을 쓴다)
+    // 경합이 잦으면 Member.version + OptimisticRetryTemplate 이 커넥션을 덜 잡는다.
+    // 읽기 전용 커넥션에서는 select for update 가 실패하는 디비가 있다. (postgres)
+    @Transactional
     @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "javax.persistence.lock.timeout", value = "3000"))
     List<Member> findLockByUsername(String username);
 }
@@ -1,9 +1,50 @@
 package study.datajpa.repository;
 
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import study.datajpa.dto.CursorResult;
+import study.datajpa.dto.MemberCursor;
+import study.datajpa.dto.MemberDto;
 import study.datajpa.entity.Member;
+import study.datajpa.repository.support.CountMode;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
 public interface MemberRepositoryCustom {
     List<Member> findMemberCustom();
+
+    /**
+     * username in :names. 이름이 많으면 in-clause-chunk-size 개씩 나눠서 조회하고 합친다.
+     */
+    List<Member> findByNames(Collection<String> names);
+
+    /**
+     * keyset(seek) 페이징: username, member_id 순으로 cursor 다음 size 건을 조회한다.
+     * cursor 가 null 이면 첫 페이지
+     */
+    CursorResult<MemberDto> findMemberDtoByCursor(MemberCursor cursor, int size);
+
+    /**
+     * 전체 회원을 fetchSize 단위로 커서(ScrollableResults)를 통해 흘려보낸다.
+     * 트랜잭션 안에서 호출하고, 다 쓰면 반드시 close 해야 한다. (try-with-resources)
+     */
+    Stream<MemberDto> streamMemberDto(int fetchSize);
+
+    /**
+     * findByAge(age, pageable) 와 같지만 count 쿼리를 다른 스레드에서 동시에 실행하고 잠깐 캐시한다.
+     */
+    Page<Member> findPageByAge(int age, Pageable pageable);
+
+    /**
+     * findMemberDtoPage(pageable) + count 방식 선택 (EXACT: 동시 실행 + 캐시, ESTIMATED: 테이블 통계)
+     */
+    Page<MemberDto> findMemberDtoPage(Pageable pageable, CountMode countMode);
+
+    /**
+     * findMemberDtoPage 와 같은 페이지 범위의 해시 (조건부 GET 의 ETag 용). 집계 쿼리 한 번으로 만든다.
+     * 이름, 팀 이름이 바뀌면 version 이 올라가므로 값이 바뀐다. 전체 회원 수는 넣지 않는다.
+     */
+    long findMemberDtoPageHash(Pageable pageable);
 }
@@ -1,19 +1,49 @@
 package study.datajpa.repository;
 
 import lombok.RequiredArgsConstructor;
+import org.hibernate.CacheMode;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.jpa.QueryHints;
+import org.hibernate.persister.entity.AbstractEntityPersister;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import study.datajpa.dto.CursorResult;
+import study.datajpa.dto.MemberCursor;
+import study.datajpa.dto.MemberDto;
 import study.datajpa.entity.Member;
+import study.datajpa.repository.support.CountMode;
+import study.datajpa.repository.support.PageCountExecutor;
 
 import javax.persistence.EntityManager;
+import javax.persistence.Query;
+import javax.persistence.TypedQuery;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.stream.Stream;
 
 /**
  * querydsl 을 사용할때 custom 으로 활용한다.
  * 커스텀 레포지토리의 구현체는 기준이 되는 레포지토리에 Impl 을 붙히는것이 규칙
  * MemberRepository 인 경우 -> MemberRepositoryImpl
+ *
+ * MemberRepository 의 @Transactional(readOnly = true) 는 인터페이스에 선언된 메서드에만 적용되므로 여기에 따로 붙인다.
  */
+@Transactional(readOnly = true)
 @RequiredArgsConstructor
 public class MemberRepositoryImpl implements MemberRepositoryCustom {
     private final EntityManager em;
+    private final PageCountExecutor pageCountExecutor;
+
+    // 2의 제곱수로 둔다. in 절 패딩(in_clause_parameter_padding)과 맞아서 꽉 찬 청크는 모두 같은 SQL 이 된다.
+    @Value("${datajpa.query.in-clause-chunk-size:512}")
+    private int inClauseChunkSize;
 
 //    public MemberRepositoryImpl(EntityManager em) {
 //        this.em = em;
@@ -24,4 +54,171 @@ public class MemberRepositoryImpl implements MemberRepositoryCustom {
         return em.createQuery("select m from Member m")
                 .getResultList();
     }
+
+    /**
+     * in 절은 바인딩 변수 수마다 다른 SQL 이 돼서 하이버네이트 쿼리 플랜 캐시와 디비 statement 캐시를 채운다.
+     * - hibernate.query.in_clause_parameter_padding: 변수 수를 2의 제곱수로 올림 (마지막 값을 반복) -> SQL 모양이 log2(n) 개
+     * - 청크: 디비의 in 절/바인딩 변수 수 제한(oracle 1000, sql server 2100)을 넘지 않도록 나눠서 조회
+     */
+    @Override
+    public List<Member> findByNames(Collection<String> names) {
+        List<String> distinct = new ArrayList<>(new LinkedHashSet<>(names));
+        if (distinct.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        List<Member> result = new ArrayList<>();
+        for (int from = 0; from < distinct.size(); from += inClauseChunkSize) {
+            List<String> chunk = distinct.subList(from, Math.min(from + inClauseChunkSize, distinct.size()));
+            result.addAll(em.createQuery("select m from Member m where m.username in :names", Member.class)
+                    .setParameter("names", chunk)
+                    .getResultList());
+        }
+        return result;
+    }
+
+    /**
+     * offset 페이징은 앞 페이지의 row 를 모두 읽고 버리기 때문에 뒤로 갈수록 느려진다.
+     * 마지막으로 읽은 (username, id) 보다 큰 row 부터 읽으면 깊이와 상관없이 일정한 비용이 든다.
+     * username 이 null 인 회원은 맨 앞에 (nulls first, id 순) 오고, 커서의 username 도 null 일 수 있다.
+     */
+    @Override
+    public CursorResult<MemberDto> findMemberDtoByCursor(MemberCursor cursor, int size) {
+        String jpql = "select new study.datajpa.dto.MemberDto(m.id, m.username, t.name)" +
+                " from Member m left join m.team t";
+        if (cursor != null && cursor.getUsername() == null) {
+            // null 구간 안에서는 id 순, 그 뒤로 username 이 있는 회원 전부
+            jpql += " where (m.username is null and m.id > :id) or m.username is not null";
+        } else if (cursor != null) {
+            // (username, id) > (:username, :id) 를 풀어쓴 것. username >= 조건으로 인덱스 범위 스캔을 탄다. (null 은 이미 지나왔다)
+            jpql += " where m.username >= :username and (m.username > :username or m.id > :id)";
+        }
+        // 디비마다 null 의 기본 정렬 위치가 다르므로 명시한다.
+        jpql += " order by m.username asc nulls first, m.id asc";
+
+        TypedQuery<MemberDto> query = em.createQuery(jpql, MemberDto.class);
+        if (cursor != null) {
+            query.setParameter("id", cursor.getId());
+            if (cursor.getUsername() != null) {
+                query.setParameter("username", cursor.getUsername());
+            }
+        }
+
+        // 다음 페이지 존재 여부를 알기 위해 한 건 더 읽는다. (Slice 와 같은 방식)
+        List<MemberDto> content = query.setMaxResults(size + 1).getResultList();
+        if (content.size() <= size) {
+            return new CursorResult<>(content, null);
+        }
+
+        content = content.subList(0, size);
+        MemberDto last = content.get(size - 1);
+        return new CursorResult<>(content, new MemberCursor(last.getUsername(), last.getId()).encode());
+    }
+
+    /**
+     * getResultList() 는 결과를 전부 List 에 담지만, getResultStream() 은 hibernate 가 ScrollableResults 로
+     * fetchSize 만큼씩 디비에서 읽어온다. DTO 로 바로 받기 때문에 영속성 컨텍스트에도 쌓이지 않는다.
+     */
+    @Override
+    // 메서드가 끝날 때 트랜잭션이 끝나면 스트림도 닫힌다. 호출하는 쪽 트랜잭션이 꼭 있어야 한다.
+    @Transactional(propagation = Propagation.MANDATORY, readOnly = true)
+    public Stream<MemberDto> streamMemberDto(int fetchSize) {
+        return em.createQuery("select new study.datajpa.dto.MemberDto(m.id, m.username, t.name)" +
+                        " from Member m left join m.team t" +
+                        " order by m.id", MemberDto.class)
+                .setHint(QueryHints.HINT_FETCH_SIZE, fetchSize)
+                .setHint(QueryHints.HINT_READONLY, true)
+                .setHint(QueryHints.HINT_CACHE_MODE, CacheMode.IGNORE)
+                .getResultStream();
+    }
+
+    @Override
+    public Page<Member> findPageByAge(int age, Pageable pageable) {
+        String jpql = QueryUtils.applySorting("select m from Member m where m.age = :age", pageable.getSort(), "m");
+        return pageCountExecutor.page(pageable, "Member.age=" + age,
+                () -> paging(em.createQuery(jpql, Member.class), pageable)
+                        .setParameter("age", age)
+                        .getResultList(),
+                () -> em.createQuery("select count(m) from Member m where m.age = :age", Long.class)
+                        .setParameter("age", age)
+                        .getSingleResult());
+    }
+
+    @Override
+    public Page<MemberDto> findMemberDtoPage(Pageable pageable, CountMode countMode) {
+        String jpql = memberDtoPageJpql(pageable);
+        if (countMode == CountMode.ESTIMATED) {
+            return pageCountExecutor.estimatedPage(pageable, "member",
+                    () -> paging(em.createQuery(jpql, MemberDto.class), pageable).getResultList());
+        }
+        return pageCountExecutor.page(pageable, "Member.all",
+                () -> paging(em.createQuery(jpql, MemberDto.class), pageable).getResultList(),
+                () -> em.createQuery("select count(m) from Member m", Long.class).getSingleResult());
+    }
+
+    /**
+     * content 쿼리와 같은 정렬/페이징 범위를 서브쿼리로 잘라서 집계만 돌려받는다. (DTO 를 만들지 않는다)
+     * - 회원 id 합/제곱합: 범위에 들어온 회원이 바뀌면 달라진다.
+     * - version 합: 회원/팀이 수정될 때마다 올라간다. (벌크 업데이트도 올린다)
+     * 전체 회원 수는 세지 않는다. -> 304 에도 count 비용이 들고, 본문의 count 는 PageCountExecutor 가 따로 (캐시해서) 센다.
+     * 페이징은 표준 offset/fetch 문법이다. (H2, postgres, oracle 12c+, sql server)
+     */
+    @Override
+    public long findMemberDtoPageHash(Pageable pageable) {
+        String sql = "select count(*), sum(p.member_id), sum(p.member_id * p.member_id), sum(p.version)," +
+                " max(p.last_modified_date), sum(p.team_id), sum(p.team_version)" +
+                " from (select m.member_id, m.version, m.last_modified_date, t.team_id, t.version as team_version" +
+                " from member m left join team t on t.team_id = m.team_id" +
+                nativeOrderBy(pageSort(pageable)) +
+                (pageable.isPaged() ? " offset :offset rows fetch first :size rows only" : "") +
+                ") p";
+
+        Query query = em.createNativeQuery(sql);
+        if (pageable.isPaged()) {
+            query.setParameter("offset", pageable.getOffset())
+                    .setParameter("size", pageable.getPageSize());
+        }
+        Object[] row = (Object[]) query.getSingleResult();
+
+        long hash = 1;
+        for (Object value : row) {
+            hash = 31 * hash + (value == null ? 0 : value.hashCode());
+        }
+        return hash;
+    }
+
+    private String memberDtoPageJpql(Pageable pageable) {
+        return QueryUtils.applySorting("select new study.datajpa.dto.MemberDto(m.id, m.username, t.name)" +
+                " from Member m left join m.team t", pageSort(pageable), "m");
+    }
+
+    /**
+     * 정렬 값이 같은 회원끼리의 순서를 id 로 고정한다. (검증값과 본문이 같은 회원들을 보도록)
+     */
+    private Sort pageSort(Pageable pageable) {
+        Sort sort = pageable.getSort();
+        return sort.getOrderFor("id") == null ? sort.and(Sort.by("id")) : sort;
+    }
+
+    private String nativeOrderBy(Sort sort) {
+        AbstractEntityPersister persister = (AbstractEntityPersister) em.getEntityManagerFactory()
+                .unwrap(SessionFactoryImplementor.class)
+                .getMetamodel()
+                .entityPersister(Member.class);
+        List<String> orders = new ArrayList<>();
+        for (Sort.Order order : sort) {
+            for (String column : persister.getPropertyColumnNames(order.getProperty())) {
+                orders.add("m." + column + (order.isAscending() ? " asc" : " desc"));
+            }
+        }
+        return " order by " + String.join(", ", orders);
+    }
+
+    private <T> TypedQuery<T> paging(TypedQuery<T> query, Pageable pageable) {
+        if (pageable.isPaged()) {
+            query.setFirstResult((int) pageable.getOffset())
+                    .setMaxResults(pageable.getPageSize());
+        }
+        return query;
+    }
 }
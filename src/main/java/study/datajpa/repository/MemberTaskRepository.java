@@ -0,0 +1,32 @@
+package study.datajpa.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+import study.datajpa.entity.MemberTask;
+import study.datajpa.entity.MemberTaskStatus;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+
+// 쿼리 메서드는 읽기 전용 트랜잭션 (MemberRepository 참고)
+@Transactional(readOnly = true)
+public interface MemberTaskRepository extends JpaRepository<MemberTask, Long>, MemberTaskRepositoryCustom {
+    long countByStatus(MemberTaskStatus status);
+
+    @Transactional
+    @Modifying
+    @Query("update MemberTask t set t.status = study.datajpa.entity.MemberTaskStatus.DONE" +
+            " where t.id in :ids and t.owner = :owner")
+    int complete(@Param("owner") String owner, @Param("ids") Collection<Long> ids);
+
+    // 워커가 죽어서 처리하지 못한 작업을 다시 큐에 돌려놓는다.
+    @Transactional
+    @Modifying
+    @Query("update MemberTask t set t.status = study.datajpa.entity.MemberTaskStatus.PENDING," +
+            " t.owner = null, t.claimToken = null, t.claimedAt = null" +
+            " where t.status = study.datajpa.entity.MemberTaskStatus.CLAIMED and t.claimedAt < :claimedBefore")
+    int releaseExpired(@Param("claimedBefore") LocalDateTime claimedBefore);
+}
@@ -0,0 +1,13 @@
+package study.datajpa.repository;
+
+import study.datajpa.entity.MemberTask;
+
+import java.util.List;
+
+public interface MemberTaskRepositoryCustom {
+    /**
+     * 다른 워커가 가져가지 않은 PENDING 작업을 최대 limit 개 CLAIMED 로 바꾸고 반환한다.
+     * 동시에 호출한 워커끼리 같은 작업을 받지 않는다.
+     */
+    List<MemberTask> claim(String owner, int limit);
+}
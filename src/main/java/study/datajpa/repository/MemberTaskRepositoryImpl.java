@@ -0,0 +1,105 @@
+package study.datajpa.repository;
+
+import org.hibernate.LockOptions;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.springframework.transaction.annotation.Transactional;
+import study.datajpa.entity.MemberTask;
+import study.datajpa.entity.MemberTaskStatus;
+
+import javax.persistence.EntityManager;
+import javax.persistence.LockModeType;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * findLockByUsername 처럼 select for update 로 작업을 가져가면, 워커들이 모두 같은 (맨 앞) row 의 락을 기다린다.
+ *
+ * 1. SKIP LOCKED 를 지원하는 디비 (postgres, oracle, mysql 8): select ... for update skip locked
+ *    다른 워커가 잠근 row 는 건너뛰고 다음 row 를 잠그므로 워커마다 겹치지 않는 묶음을 바로 가져간다.
+ * 2. 지원하지 않는 디비 (H2 1.4): 락 없이 후보를 고른 뒤 claim token 을 건 조건부 update 로 가져간다.
+ *    (where status = PENDING -> 먼저 커밋한 워커만 성공). 필요한 수보다 넓은 후보 구간을 읽어 섞어서 워커끼리 덜 부딪히게 하고,
+ *    하나도 못 가져갔으면 PENDING 후보가 남아 있는 동안 다시 시도한다. -> 빈 결과는 항상 "큐가 비었다" 는 뜻이다.
+ *    일부라도 가져갔으면 더 채우지 않고 돌려준다. 잡은 row 락을 들고 다음 update 를 하면 서로 다른 순서로 잠근 워커끼리 데드락이 난다.
+ * 어느 쪽이든 트랜잭션은 claim 하는 동안만 열려 있고, 작업 처리는 커밋 후에 한다.
+ */
+public class MemberTaskRepositoryImpl implements MemberTaskRepositoryCustom {
+    private static final int CANDIDATE_WINDOW = 8;
+
+    private final EntityManager em;
+    private final boolean skipLocked;
+
+    public MemberTaskRepositoryImpl(EntityManager em) {
+        this.em = em;
+        this.skipLocked = em.getEntityManagerFactory().unwrap(SessionFactoryImplementor.class)
+                .getJdbcServices().getDialect().supportsSkipLocked();
+    }
+
+    @Override
+    @Transactional
+    public List<MemberTask> claim(String owner, int limit) {
+        return skipLocked ? claimSkipLocked(owner, limit) : claimWithToken(owner, limit);
+    }
+
+    private List<MemberTask> claimSkipLocked(String owner, int limit) {
+        List<MemberTask> tasks = em.createQuery(
+                "select t from MemberTask t where t.status = :status order by t.id", MemberTask.class)
+                .setParameter("status", MemberTaskStatus.PENDING)
+                .setLockMode(LockModeType.PESSIMISTIC_WRITE)
+                // lock.timeout = -2 -> for update skip locked
+                .setHint("javax.persistence.lock.timeout", LockOptions.SKIP_LOCKED)
+                .setMaxResults(limit)
+                .getResultList();
+
+        LocalDateTime now = LocalDateTime.now();
+        String claimToken = UUID.randomUUID().toString();
+        for (MemberTask task : tasks) {
+            task.claim(owner, claimToken, now);
+        }
+        return tasks;
+    }
+
+    private List<MemberTask> claimWithToken(String owner, int limit) {
+        String claimToken = UUID.randomUUID().toString();
+        LocalDateTime now = LocalDateTime.now();
+        int claimed = 0;
+
+        // 한 번도 못 가져간 라운드는 다른 워커가 그만큼 커밋했다는 뜻이므로, 후보가 바닥나기 전에 반드시 끝난다.
+        // 못 가져간 라운드는 잡은 락이 없으므로 다시 시도해도 데드락이 나지 않는다.
+        while (claimed == 0) {
+            // 필요한 수의 8배를 읽어서 섞는다. -> 동시에 호출한 워커들이 구간 안에 흩어져서 같은 후보를 고를 확률이 낮아진다.
+            List<Long> candidates = new ArrayList<>(em.createQuery(
+                    "select t.id from MemberTask t where t.status = :status order by t.id", Long.class)
+                    .setParameter("status", MemberTaskStatus.PENDING)
+                    .setMaxResults(limit * CANDIDATE_WINDOW)
+                    .getResultList());
+            if (candidates.isEmpty()) {
+                break;
+            }
+            Collections.shuffle(candidates);
+            // 고른 후보는 id 순으로 잠근다. (같은 row 를 고른 워커끼리는 기다릴 뿐 서로 엇갈려 잠그지 않는다)
+            List<Long> picked = new ArrayList<>(candidates.subList(0, Math.min(limit, candidates.size())));
+            Collections.sort(picked);
+
+            claimed = em.createQuery("update MemberTask t" +
+                    " set t.status = :claimed, t.owner = :owner, t.claimToken = :claimToken, t.claimedAt = :now" +
+                    " where t.id in :ids and t.status = :pending")
+                    .setParameter("claimed", MemberTaskStatus.CLAIMED)
+                    .setParameter("owner", owner)
+                    .setParameter("claimToken", claimToken)
+                    .setParameter("now", now)
+                    .setParameter("ids", picked)
+                    .setParameter("pending", MemberTaskStatus.PENDING)
+                    .executeUpdate();
+        }
+
+        if (claimed == 0) {
+            return Collections.emptyList();
+        }
+        return em.createQuery("select t from MemberTask t where t.claimToken = :claimToken order by t.id", MemberTask.class)
+                .setParameter("claimToken", claimToken)
+                .getResultList();
+    }
+}
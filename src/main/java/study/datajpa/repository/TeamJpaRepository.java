@@ -1,5 +1,6 @@
 package study.datajpa.repository;
 
+import org.springframework.stereotype.Repository;
 import study.datajpa.entity.Team;
 
 import javax.persistence.EntityManager;
@@ -7,6 +8,7 @@ import javax.persistence.PersistenceContext;
 import java.util.List;
 import java.util.Optional;
 
+@Repository
 public class TeamJpaRepository {
     @PersistenceContext
     private EntityManager em;
@@ -21,7 +23,7 @@ public class TeamJpaRepository {
     }
 
     public List<Team> findAll() {
-        return em.createQuery("select t from Team t", Team.class)
+        return em.createNamedQuery("Team.jpa.findAll", Team.class)
                 .getResultList();
     }
 
@@ -31,7 +33,7 @@ public class TeamJpaRepository {
     }
 
     public long count() {
-        return em.createQuery("select count(t) from Team t", Long.class)
+        return em.createNamedQuery("Team.jpa.count", Long.class)
                 .getSingleResult();
     }
 }
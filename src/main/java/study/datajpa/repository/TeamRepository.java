@@ -1,8 +1,18 @@
 package study.datajpa.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.transaction.annotation.Transactional;
 import study.datajpa.entity.Team;
 
-public interface TeamRepository extends JpaRepository<Team, Long> {
+import javax.persistence.QueryHint;
+import java.util.Collection;
+import java.util.List;
 
+// 쿼리 메서드는 읽기 전용 트랜잭션 (MemberRepository 참고)
+@Transactional(readOnly = true)
+public interface TeamRepository extends JpaRepository<Team, Long> {
+    // 쿼리 캐시: team 테이블이 바뀌면 (save/delete/벌크 update) 자동으로 무효화된다.
+    @QueryHints(@QueryHint(name = "org.hibernate.cacheable", value = "true"))
+    List<Team> findByNameIn(Collection<String> names);
 }
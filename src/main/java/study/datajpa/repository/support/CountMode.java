@@ -0,0 +1,15 @@
+package study.datajpa.repository.support;
+
+/**
+ * Page 의 totalCount 를 어떻게 구할지
+ */
+public enum CountMode {
+    /**
+     * count 쿼리 (별도 스레드에서 content 쿼리와 동시에 실행, 짧은 TTL 로 캐시)
+     */
+    EXACT,
+    /**
+     * 테이블 통계의 추정치. count 쿼리를 실행하지 않는다. (조건 없는 전체 목록에만 쓸 수 있다)
+     */
+    ESTIMATED
+}
@@ -0,0 +1,266 @@
+package study.datajpa.repository.support;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.hibernate.Session;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.*;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.StringUtils;
+import study.datajpa.entity.Member;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * username -> 회원 id 목록 near-cache (MemberRepository.findByUsername 계열, MemberUsernameCacheInterceptor)
+ *
+ * 엔티티가 아니라 id 만 들고 있고, 엔티티는 em.find 로 2차 캐시(Member region)에서 꺼낸다.
+ * -> 나이/팀 변경, 벌크 업데이트는 하이버네이트가 2차 캐시를 맞춰주므로 여기서는 username 과 id 의 관계만 지킨다.
+ *
+ * 무효화: 회원 insert/delete/username 변경(하이버네이트 이벤트)과 벌크 쿼리(@Modifying)
+ * - 트랜잭션이 끝난 뒤(afterCompletion)에 지운다. 커밋 전에 지우면 다른 스레드가 커밋 전 데이터로 다시 채운다.
+ * - 조회 시작 시점의 generation 을 같이 넣고, 그 사이 무효화가 있었으면 넣지 않는다. (느린 조회가 오래된 결과를 넣는 것 방지)
+ * - 전체 무효화는 flushedGeneration 보다 오래된 항목을 없는 것으로 본다. (invalidateAll 순회 중에 끼어든 항목도 안전)
+ */
+@Component
+public class MemberUsernameCache implements SmartInitializingSingleton,
+        PostInsertEventListener, PostUpdateEventListener, PostDeleteEventListener {
+    private final EntityManager em;
+    private final EntityManagerFactory entityManagerFactory;
+    private final ObjectProvider<MeterRegistry> meterRegistry;
+    private final Cache<String, Entry> cache;
+    private final AtomicLong generation = new AtomicLong();
+    private volatile long flushedGeneration;
+    private final boolean enabled;
+    private final boolean replicaReads;
+
+    public MemberUsernameCache(EntityManager em,
+                               EntityManagerFactory entityManagerFactory,
+                               ObjectProvider<MeterRegistry> meterRegistry,
+                               @Value("${datajpa.member-cache.enabled:true}") boolean enabled,
+                               @Value("${datajpa.member-cache.max-size:10000}") long maxSize,
+                               @Value("${datajpa.member-cache.ttl-seconds:60}") long ttlSeconds,
+                               @Value("${datajpa.datasource.replica-urls:}") String replicaUrls) {
+        this.em = em;
+        this.entityManagerFactory = entityManagerFactory;
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+        this.replicaReads = StringUtils.hasText(replicaUrls);
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttlSeconds, TimeUnit.SECONDS)
+                .recordStats()
+                .build();
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (!enabled) {
+            return;
+        }
+        EventListenerRegistry registry = entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+                .getServiceRegistry()
+                .getService(EventListenerRegistry.class);
+        registry.appendListeners(EventType.POST_INSERT, this);
+        registry.appendListeners(EventType.POST_UPDATE, this);
+        registry.appendListeners(EventType.POST_DELETE, this);
+
+        MeterRegistry meters = meterRegistry.getIfAvailable();
+        if (meters != null) {
+            CaffeineCacheMetrics.monitor(meters, cache, "member.username");
+        }
+    }
+
+    /**
+     * 쓰기 트랜잭션 안에서는 자기가 아직 커밋하지 않은 변경을 봐야 하므로 캐시를 쓰지 않는다.
+     */
+    public boolean isUsable() {
+        return enabled && (!TransactionSynchronizationManager.isActualTransactionActive()
+                || TransactionSynchronizationManager.isCurrentTransactionReadOnly());
+    }
+
+    /**
+     * 읽기 전용 조회가 replica 로 갈 수 있는지 (ReplicaRoutingDataSource)
+     * 그렇다면 primary 에서 읽은 결과로만 채운다. 늦은 replica 가 방금 무효화된 항목을 예전 값으로 다시 채우면 안 된다.
+     */
+    public boolean hasReplicaReads() {
+        return replicaReads;
+    }
+
+    /**
+     * @return 캐시된 id 목록. 없으면 null
+     */
+    public List<Long> get(String username) {
+        Entry entry = cache.getIfPresent(username);
+        if (entry == null || entry.generation < flushedGeneration) {
+            return null;
+        }
+        return entry.ids;
+    }
+
+    /**
+     * 조회 전에 받아두고 put 할 때 넘긴다.
+     */
+    public long generation() {
+        return generation.get();
+    }
+
+    public void put(String username, List<Long> ids, long readGeneration) {
+        // 같은 키의 invalidate 와 원자적으로 실행된다. 조회하는 동안 무효화가 있었으면 넣지 않는다.
+        cache.asMap().compute(username, (key, old) ->
+                generation.get() == readGeneration ? new Entry(readGeneration, ids) : old);
+    }
+
+    /**
+     * id 목록을 엔티티로. 그 사이 지워진 회원이 있으면 null (캐시를 버리고 디비에서 다시 조회)
+     */
+    public List<Member> load(List<Long> ids, boolean readOnly) {
+        List<Member> members = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            Member member = em.find(Member.class, id);
+            if (member == null) {
+                return null;
+            }
+            members.add(member);
+        }
+        // findReadOnlyByUsername: 묶여 있는 영속성 컨텍스트가 있을 때만 스냅샷을 버린다.
+        if (readOnly && TransactionSynchronizationManager.hasResource(entityManagerFactory)) {
+            Session session = em.unwrap(Session.class);
+            for (Member member : members) {
+                session.setReadOnly(member, true);
+            }
+        }
+        return members;
+    }
+
+    public void invalidate(String username) {
+        if (username == null) {
+            return;
+        }
+        Pending pending = pending();
+        if (pending == null) {
+            evict(Collections.singleton(username));
+        } else {
+            pending.usernames.add(username);
+        }
+    }
+
+    public void invalidateAll() {
+        Pending pending = pending();
+        if (pending == null) {
+            evictAll();
+        } else {
+            pending.all = true;
+        }
+    }
+
+    private void evict(Collection<String> usernames) {
+        generation.incrementAndGet();
+        cache.invalidateAll(usernames);
+    }
+
+    private void evictAll() {
+        flushedGeneration = generation.incrementAndGet();
+        cache.invalidateAll();
+    }
+
+    /**
+     * 트랜잭션 안이면 끝날 때 한 번에 지울 목록 (트랜잭션당 하나)
+     * 스레드에 묶는 리소스(bindResource)는 REQUIRES_NEW 에서도 그대로 보이므로, 트랜잭션의 synchronization 목록에 둔다.
+     * (REQUIRES_NEW 는 바깥 synchronization 을 suspend 한다 -> 안쪽 트랜잭션이 커밋되면 바로 지운다)
+     */
+    private Pending pending() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return null;
+        }
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            if (synchronization instanceof Pending && ((Pending) synchronization).owner() == this) {
+                return (Pending) synchronization;
+            }
+        }
+        Pending created = new Pending();
+        TransactionSynchronizationManager.registerSynchronization(created);
+        return created;
+    }
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        if (event.getEntity() instanceof Member) {
+            invalidate(((Member) event.getEntity()).getUsername());
+        }
+    }
+
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        if (event.getEntity() instanceof Member) {
+            invalidate(((Member) event.getEntity()).getUsername());
+        }
+    }
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        if (!(event.getEntity() instanceof Member)) {
+            return;
+        }
+        int index = event.getPersister().getEntityMetamodel().getPropertyIndex("username");
+        Object[] oldState = event.getOldState();
+        if (oldState == null) {
+            // 이전 값을 모르면 (detached update 등) 전부
+            invalidateAll();
+            return;
+        }
+        Object oldUsername = oldState[index];
+        Object newUsername = event.getState()[index];
+        if (!Objects.equals(oldUsername, newUsername)) {
+            invalidate((String) oldUsername);
+            invalidate((String) newUsername);
+        }
+    }
+
+    @Override
+    public boolean requiresPostCommitHanding(EntityPersister persister) {
+        return false;
+    }
+
+    private static class Entry {
+        private final long generation;
+        private final List<Long> ids;
+
+        Entry(long generation, List<Long> ids) {
+            this.generation = generation;
+            this.ids = ids;
+        }
+    }
+
+    private class Pending implements TransactionSynchronization {
+        private final Set<String> usernames = new HashSet<>();
+        private boolean all;
+
+        MemberUsernameCache owner() {
+            return MemberUsernameCache.this;
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            // 롤백이어도 지운다. (다시 조회하면 되므로 손해가 없다)
+            if (all) {
+                evictAll();
+            } else if (!usernames.isEmpty()) {
+                evict(usernames);
+            }
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package study.datajpa.repository.support;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.repository.core.support.SurroundingTransactionDetectorMethodInterceptor;
+import study.datajpa.datasource.ReplicaRoutingDataSource;
+import study.datajpa.entity.Member;
+
+import java.lang.reflect.Method;
+import java.util.*;
+import java.util.function.Supplier;
+
+/**
+ * MemberRepository 의 username 단건/목록 조회를 MemberUsernameCache 로 처리한다.
+ * - 캐시 hit: id 목록 -> em.find (2차 캐시). 쿼리 메서드를 실행하지 않는다.
+ * - 캐시 miss: 쿼리 메서드 실행 후 결과의 id 목록을 넣는다.
+ * - replica 를 쓰면 (datajpa.datasource.replica-urls) miss 는 primary 에서 읽어서 넣는다.
+ * - @Modifying / *InBatch (하이버네이트 이벤트 없이 디비를 바꾸는 벌크 쿼리): 실행 후 전체 무효화
+ */
+public class MemberUsernameCacheInterceptor implements MethodInterceptor {
+    private static final Set<String> CACHED_METHODS = new HashSet<>(Arrays.asList(
+            "findByUsername", "findMemberByUsername", "findOptionalByUsername", "findReadOnlyByUsername"));
+    private static final Set<String> BATCH_METHODS = new HashSet<>(Arrays.asList(
+            "deleteInBatch", "deleteAllInBatch", "deleteAllByIdInBatch"));
+
+    private final Supplier<MemberUsernameCache> cache;
+
+    public MemberUsernameCacheInterceptor(Supplier<MemberUsernameCache> cache) {
+        this.cache = cache;
+    }
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        Method method = invocation.getMethod();
+        if (CACHED_METHODS.contains(method.getName()) && invocation.getArguments().length == 1
+                && invocation.getArguments()[0] instanceof String) {
+            return cachedFind(invocation, (String) invocation.getArguments()[0]);
+        }
+
+        Object result = invocation.proceed();
+        if (BATCH_METHODS.contains(method.getName()) || AnnotatedElementUtils.hasAnnotation(method, Modifying.class)) {
+            cache.get().invalidateAll();
+        }
+        return result;
+    }
+
+    private Object cachedFind(MethodInvocation invocation, String username) throws Throwable {
+        MemberUsernameCache cache = this.cache.get();
+        if (!cache.isUsable()) {
+            return invocation.proceed();
+        }
+
+        Class<?> returnType = invocation.getMethod().getReturnType();
+        boolean single = !List.class.isAssignableFrom(returnType);
+        List<Long> ids = cache.get(username);
+        // 단건 메서드인데 여러 명이면 스프링 데이터가 예외를 내도록 그대로 실행한다.
+        boolean loaded = ids != null && !(single && ids.size() > 1);
+        if (loaded) {
+            List<Member> members = cache.load(ids, invocation.getMethod().getName().equals("findReadOnlyByUsername"));
+            if (members != null) {
+                return toResult(members, returnType);
+            }
+        }
+
+        long generation = cache.generation();
+        if (!cache.hasReplicaReads()) {
+            Object result = invocation.proceed();
+            cache.put(username, ids(result), generation);
+            return result;
+        }
+
+        // replica 를 쓰면 primary 에서 읽은 결과만 넣는다.
+        // 바깥 읽기 전용 트랜잭션이 이미 잡은 커넥션은 replica 일 수 있으므로 그때는 넣지 않는다.
+        if (SurroundingTransactionDetectorMethodInterceptor.INSTANCE.isSurroundingTransactionActive()) {
+            return invocation.proceed();
+        }
+        // 위에서 load 가 (2차 캐시 miss 로) SQL 을 실행했으면 이 트랜잭션의 커넥션은 이미 replica 일 수 있다.
+        // -> primary() 로 바꿀 수 없으므로 넣지 않고, 맞지 않는 항목만 지운다. (다음 호출이 primary 에서 채운다)
+        if (loaded) {
+            cache.invalidate(username);
+            return invocation.proceed();
+        }
+        Object result;
+        try (ReplicaRoutingDataSource.Scope ignored = ReplicaRoutingDataSource.primary()) {
+            result = invocation.proceed();
+        }
+        cache.put(username, ids(result), generation);
+        return result;
+    }
+
+    private Object toResult(List<Member> members, Class<?> returnType) {
+        if (List.class.isAssignableFrom(returnType)) {
+            return members;
+        }
+        Member member = members.isEmpty() ? null : members.get(0);
+        if (returnType == Optional.class) {
+            return Optional.ofNullable(member);
+        }
+        return member;
+    }
+
+    private List<Long> ids(Object result) {
+        List<Long> ids = new ArrayList<>();
+        if (result instanceof Collection) {
+            for (Object member : (Collection<?>) result) {
+                ids.add(((Member) member).getId());
+            }
+        } else if (result instanceof Optional) {
+            ((Optional<?>) result).ifPresent(member -> ids.add(((Member) member).getId()));
+        } else if (result != null) {
+            ids.add(((Member) result).getId());
+        }
+        return Collections.unmodifiableList(ids);
+    }
+}
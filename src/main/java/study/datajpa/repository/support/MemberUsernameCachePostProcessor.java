@@ -0,0 +1,32 @@
+package study.datajpa.repository.support;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.data.repository.core.support.RepositoryFactoryBeanSupport;
+import org.springframework.stereotype.Component;
+import study.datajpa.repository.MemberRepository;
+
+/**
+ * MemberRepository 프록시에 MemberUsernameCacheInterceptor 를 건다. (RepositoryMetricsPostProcessor 와 같은 방식)
+ */
+@Component
+public class MemberUsernameCachePostProcessor implements BeanPostProcessor {
+    private final ObjectProvider<MemberUsernameCache> cache;
+
+    public MemberUsernameCachePostProcessor(ObjectProvider<MemberUsernameCache> cache) {
+        this.cache = cache;
+    }
+
+    @Override
+    public Object postProcessBeforeInitialization(Object bean, String beanName) {
+        if (bean instanceof RepositoryFactoryBeanSupport) {
+            ((RepositoryFactoryBeanSupport<?, ?, ?>) bean).addRepositoryFactoryCustomizer(factory ->
+                    factory.addRepositoryProxyPostProcessor((proxyFactory, repositoryInformation) -> {
+                        if (repositoryInformation.getRepositoryInterface() == MemberRepository.class) {
+                            proxyFactory.addAdvice(new MemberUsernameCacheInterceptor(cache::getObject));
+                        }
+                    }));
+        }
+        return bean;
+    }
+}
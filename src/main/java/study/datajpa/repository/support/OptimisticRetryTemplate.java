@@ -0,0 +1,100 @@
+package study.datajpa.repository.support;
+
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.StaleStateException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.OptimisticLockException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Consumer;
+
+/**
+ * @Version 엔티티 수정을 낙관적 락 충돌 시 다시 시도한다.
+ *
+ * findLockByUsername(PESSIMISTIC_WRITE) 은 select for update 로 같은 row 를 수정하는 트랜잭션을 줄 세우고,
+ * 기다리는 동안 커넥션을 잡고 있다. 낙관적 락은 커밋 시점에 version 으로 충돌만 확인하므로
+ * 충돌이 드물면 락 대기 없이 끝나고, 충돌하면 새 트랜잭션(새 영속성 컨텍스트)에서 처음부터 다시 읽고 수정한다.
+ *
+ * - 시도마다 REQUIRES_NEW 트랜잭션 (이전 시도의 오래된 엔티티를 다시 쓰지 않도록)
+ * - 재시도 간격은 지수 백오프 + full jitter (같이 실패한 스레드들이 또 같이 부딪히지 않도록)
+ * - callback 은 여러 번 실행될 수 있으므로 트랜잭션 밖의 부수효과가 없어야 한다.
+ */
+@Slf4j
+@Component
+public class OptimisticRetryTemplate {
+    private final TransactionTemplate newTransaction;
+
+    @Value("${datajpa.optimistic.max-attempts:5}")
+    private int maxAttempts;
+
+    @Value("${datajpa.optimistic.backoff-millis:10}")
+    private long backoffMillis;
+
+    @Value("${datajpa.optimistic.max-backoff-millis:200}")
+    private long maxBackoffMillis;
+
+    public OptimisticRetryTemplate(PlatformTransactionManager transactionManager) {
+        this.newTransaction = new TransactionTemplate(transactionManager);
+        this.newTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    public <T> T execute(TransactionCallback<T> action) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return newTransaction.execute(action);
+            } catch (RuntimeException e) {
+                if (!isOptimisticLockFailure(e)) {
+                    throw e;
+                }
+                if (attempt >= maxAttempts) {
+                    log.warn("optimistic lock failure, giving up after {} attempts", attempt);
+                    throw e;
+                }
+                log.debug("optimistic lock failure, retrying (attempt {}/{})", attempt, maxAttempts);
+                backoff(attempt);
+            }
+        }
+    }
+
+    public void executeWithoutResult(Consumer<TransactionStatus> action) {
+        execute(status -> {
+            action.accept(status);
+            return null;
+        });
+    }
+
+    /**
+     * 커밋 시점 충돌은 스프링 예외(ObjectOptimisticLockingFailureException)로,
+     * callback 안에서 flush 하다 난 충돌은 JPA/하이버네이트 예외로 올라온다.
+     */
+    private boolean isOptimisticLockFailure(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof OptimisticLockingFailureException
+                    || cause instanceof OptimisticLockException
+                    || cause instanceof StaleStateException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void backoff(int attempt) {
+        long ceiling = Math.min(maxBackoffMillis, backoffMillis << Math.min(attempt - 1, 20));
+        if (ceiling <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(ceiling + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted while backing off", e);
+        }
+    }
+}
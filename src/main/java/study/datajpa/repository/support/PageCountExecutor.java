@@ -0,0 +1,151 @@
+package study.datajpa.repository.support;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.support.PageableExecutionUtils;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Page 조회 시 content 쿼리와 count 쿼리를 동시에 실행한다.
+ *
+ * 스프링 데이터의 Page 는 content 쿼리 -> count 쿼리를 요청 스레드에서 차례로 실행한다.
+ * 테이블이 크면 count 가 content 보다 오래 걸리는 경우가 많으므로
+ * 1. count 는 크기가 제한된 별도 스레드풀에서 (자기 트랜잭션으로) 먼저 시작하고
+ * 2. content 만 보고 total 을 알 수 있으면 (마지막 페이지) count 를 기다리지 않고 취소한다.
+ *    (아직 큐에 있으면 실행되지 않고, 이미 실행 중이면 끝까지 실행해서 캐시에만 넣는다)
+ * 3. 같은 조건의 count 는 짧은 TTL 동안 캐시한다. (크기 제한, 가득 차면 오래된 것부터 밀려난다)
+ * 4. 정확한 값이 필요 없으면 테이블 통계의 추정치를 쓴다.
+ *
+ * 다른 스레드는 호출한 쪽 트랜잭션의 커밋 전 데이터를 볼 수 없으므로,
+ * 쓰기 트랜잭션 안에서 호출되면 캐시 없이 호출 스레드에서 그대로 count 한다.
+ */
+@Component
+public class PageCountExecutor {
+    private final ThreadPoolExecutor executor;
+    private final TransactionTemplate readOnlyTransaction;
+    private final JdbcTemplate jdbcTemplate;
+    private final Cache<String, Long> cache;
+
+    // H2 기준. 다른 디비는 통계 테이블에 맞게 바꾼다. (postgres: pg_class.reltuples, mysql: information_schema.tables.table_rows)
+    @Value("${datajpa.page.count.estimate-sql:select row_count_estimate from information_schema.tables where table_name = upper(?)}")
+    private String estimateSql;
+
+    public PageCountExecutor(PlatformTransactionManager transactionManager,
+                             JdbcTemplate jdbcTemplate,
+                             @Value("${datajpa.page.count.threads:4}") int threads,
+                             @Value("${datajpa.page.count.queue-capacity:100}") int queueCapacity,
+                             @Value("${datajpa.page.count.cache-ttl-millis:5000}") long cacheTtlMillis,
+                             @Value("${datajpa.page.count.cache-max-size:1000}") long cacheMaxSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(cacheMaxSize)
+                .expireAfterWrite(cacheTtlMillis, TimeUnit.MILLISECONDS)
+                .build();
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+
+        AtomicInteger sequence = new AtomicInteger();
+        // 큐가 가득 차면 호출 스레드에서 실행한다. (count 가 밀려도 요청이 실패하지는 않는다)
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "page-count-" + sequence.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    /**
+     * @param countKey   count 쿼리 + 파라미터를 구분하는 키 (캐시 키)
+     * @param content    content 쿼리 (호출 스레드에서 실행)
+     * @param countQuery count 쿼리
+     */
+    public <T> Page<T> page(Pageable pageable, String countKey, Supplier<List<T>> content, LongSupplier countQuery) {
+        if (!canLeaveCallerTransaction()) {
+            return PageableExecutionUtils.getPage(content.get(), pageable, countQuery);
+        }
+
+        Future<Long> total = count(countKey, countQuery);
+        try {
+            List<T> result = content.get();
+            return PageableExecutionUtils.getPage(result, pageable, () -> await(total));
+        } finally {
+            // getPage 가 total 을 쓰지 않았거나 content 가 실패했으면 count 는 필요 없다. (끝난 future 면 아무 일도 없다)
+            // 실행 중인 JDBC 쿼리는 인터럽트하지 않는다. -> 드라이버에 따라 커넥션이 닫힐 수 있다.
+            total.cancel(false);
+        }
+    }
+
+    /**
+     * count 쿼리 대신 테이블 통계의 추정치를 totalCount 로 쓴다.
+     */
+    public <T> Page<T> estimatedPage(Pageable pageable, String tableName, Supplier<List<T>> content) {
+        return PageableExecutionUtils.getPage(content.get(), pageable, () -> estimate(tableName));
+    }
+
+    public long estimate(String tableName) {
+        Long estimate = jdbcTemplate.queryForObject(estimateSql, Long.class, tableName);
+        return estimate == null ? 0 : estimate;
+    }
+
+    private Future<Long> count(String countKey, LongSupplier countQuery) {
+        Long cached = cache.getIfPresent(countKey);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
+
+        return executor.submit(() -> {
+            Long value = readOnlyTransaction.execute(status -> countQuery.getAsLong());
+            cache.put(countKey, value);
+            return value;
+        });
+    }
+
+    public void evict(String countKey) {
+        cache.invalidate(countKey);
+    }
+
+    public void evictAll() {
+        cache.invalidateAll();
+    }
+
+    private boolean canLeaveCallerTransaction() {
+        return !TransactionSynchronizationManager.isActualTransactionActive()
+                || TransactionSynchronizationManager.isCurrentTransactionReadOnly();
+    }
+
+    private long await(Future<Long> total) {
+        try {
+            return total.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted while waiting for count query", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
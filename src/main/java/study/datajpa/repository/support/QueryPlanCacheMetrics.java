@@ -0,0 +1,49 @@
+package study.datajpa.repository.support;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.stereotype.Component;
+
+import javax.persistence.EntityManagerFactory;
+
+/**
+ * 하이버네이트 쿼리 플랜 캐시 hit/miss 를 micrometer 카운터로 내보낸다.
+ * hibernate.query.plan.cache{result=hit|miss} -> 안정 상태에서 miss 가 늘지 않으면 다시 파싱되는 쿼리가 없는 것이다.
+ * hibernate.generate_statistics=true 일 때만 값이 올라간다.
+ *
+ * 미터 레지스트리와 EntityManagerFactory 가 서로를 기다리지 않도록 모든 빈이 만들어진 뒤에 등록한다.
+ */
+@Component
+public class QueryPlanCacheMetrics implements SmartInitializingSingleton {
+    private final ObjectProvider<MeterRegistry> meterRegistry;
+    private final ObjectProvider<EntityManagerFactory> entityManagerFactory;
+
+    public QueryPlanCacheMetrics(ObjectProvider<MeterRegistry> meterRegistry,
+                                 ObjectProvider<EntityManagerFactory> entityManagerFactory) {
+        this.meterRegistry = meterRegistry;
+        this.entityManagerFactory = entityManagerFactory;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        MeterRegistry registry = meterRegistry.getIfAvailable();
+        EntityManagerFactory emf = entityManagerFactory.getIfAvailable();
+        if (registry == null || emf == null) {
+            return;
+        }
+
+        Statistics statistics = emf.unwrap(SessionFactory.class).getStatistics();
+        FunctionCounter.builder("hibernate.query.plan.cache", statistics, Statistics::getQueryPlanCacheHitCount)
+                .tag("result", "hit")
+                .description("HQL/JPQL query plan cache lookups")
+                .register(registry);
+        FunctionCounter.builder("hibernate.query.plan.cache", statistics, Statistics::getQueryPlanCacheMissCount)
+                .tag("result", "miss")
+                .description("HQL/JPQL query plan cache lookups")
+                .register(registry);
+    }
+}
@@ -0,0 +1,25 @@
+package study.datajpa.repository.support;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.autoconfigure.transaction.TransactionManagerCustomizers;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.transaction.PlatformTransactionManager;
+
+/**
+ * 트랜잭션 매니저 (ReadOnlySessionTransactionManager)
+ * replica 를 쓰면 (datajpa.datasource.replica-urls) ReplicaRoutingConfig 가 이를 상속한 ReplicaReadTransactionManager 를 등록한다.
+ */
+@Configuration
+@ConditionalOnExpression("'${datajpa.datasource.replica-urls:}'.isEmpty()")
+public class ReadOnlySessionConfig {
+
+    // 스프링 부트의 JpaTransactionManager 대신 등록된다. (@ConditionalOnMissingBean)
+    @Bean
+    public PlatformTransactionManager transactionManager(ObjectProvider<TransactionManagerCustomizers> customizers) {
+        ReadOnlySessionTransactionManager transactionManager = new ReadOnlySessionTransactionManager();
+        customizers.ifAvailable(each -> each.customize(transactionManager));
+        return transactionManager;
+    }
+}
@@ -0,0 +1,48 @@
+package study.datajpa.repository.support;
+
+import org.hibernate.Session;
+import org.springframework.orm.jpa.EntityManagerHolder;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 읽기 전용 트랜잭션이면 미리 묶인 세션(OSIV)에서도 엔티티를 읽기 전용으로 읽는다. (스냅샷을 남기지 않는다)
+ * HibernateJpaDialect 는 트랜잭션이 새로 연 세션에만 defaultReadOnly 를 켜고, 요청 동안 쓰는 OSIV 세션은 그대로 둔다.
+ * -> 웹 요청에서는 MemberRepository 의 읽기 전용 쿼리 메서드도 스냅샷을 남긴다.
+ * 여기서 켠 세션만 트랜잭션이 끝날 때 다시 끈다. (이미 읽은 엔티티는 요청이 끝날 때까지 읽기 전용이다)
+ */
+public class ReadOnlySessionTransactionManager extends JpaTransactionManager {
+    private final Set<Object> switchedTransactions = ConcurrentHashMap.newKeySet();
+
+    @Override
+    protected void doBegin(Object transaction, TransactionDefinition definition) {
+        super.doBegin(transaction, definition);
+        if (definition.isReadOnly()) {
+            Session session = currentSession();
+            if (session != null && !session.isDefaultReadOnly()) {
+                session.setDefaultReadOnly(true);
+                switchedTransactions.add(transaction);
+            }
+        }
+    }
+
+    @Override
+    protected void doCleanupAfterCompletion(Object transaction) {
+        if (switchedTransactions.remove(transaction)) {
+            Session session = currentSession();
+            if (session != null && session.isOpen()) {
+                session.setDefaultReadOnly(false);
+            }
+        }
+        super.doCleanupAfterCompletion(transaction);
+    }
+
+    protected Session currentSession() {
+        EntityManagerHolder holder = (EntityManagerHolder) TransactionSynchronizationManager.getResource(obtainEntityManagerFactory());
+        return holder == null ? null : holder.getEntityManager().unwrap(Session.class);
+    }
+}
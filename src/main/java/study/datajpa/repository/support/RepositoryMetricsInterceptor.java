@@ -0,0 +1,164 @@
+package study.datajpa.repository.support;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.springframework.data.domain.Slice;
+import org.springframework.orm.jpa.EntityManagerHolder;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.persistence.EntityManagerFactory;
+import java.lang.reflect.Method;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+import java.util.StringJoiner;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.stream.BaseStream;
+
+/**
+ * 레포지토리 메서드 하나의 호출을 잰다.
+ * - repository.invocations: 지연시간 (p50/p99/p999 + 히스토그램)
+ * - repository.rows: 반환한 row 수 (List/Page/Slice/Optional/단건)
+ * - repository.entities.loaded: 호출 동안 영속성 컨텍스트에 새로 올라간 엔티티 수
+ * - repository.errors: 예외 수
+ * method 태그는 파라미터 타입까지 붙인다. (findMemberDtoPage(Pageable,CountMode)) 이름만 쓰면 오버로드끼리 합쳐진다.
+ */
+public class RepositoryMetricsInterceptor implements MethodInterceptor {
+    private static final double[] PERCENTILES = {0.5, 0.99, 0.999};
+
+    private final Supplier<MeterRegistry> registry;
+    private final Supplier<EntityManagerFactory> entityManagerFactory;
+    private final String repository;
+    private final Map<Method, Meters> meters = new ConcurrentHashMap<>();
+
+    public RepositoryMetricsInterceptor(Supplier<MeterRegistry> registry,
+                                        Supplier<EntityManagerFactory> entityManagerFactory,
+                                        String repository) {
+        this.registry = registry;
+        this.entityManagerFactory = entityManagerFactory;
+        this.repository = repository;
+    }
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        Method method = invocation.getMethod();
+        if (method.getDeclaringClass() == Object.class) {
+            return invocation.proceed();
+        }
+
+        Meters meters = this.meters.computeIfAbsent(method, this::createMeters);
+        int entitiesBefore = managedEntities();
+        long start = System.nanoTime();
+        try {
+            Object result = invocation.proceed();
+            long rows = rows(result);
+            if (rows >= 0) {
+                meters.rows.record(rows);
+            }
+            return result;
+        } catch (Throwable e) {
+            meters.errors.increment();
+            throw e;
+        } finally {
+            meters.timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            int entitiesAfter = managedEntities();
+            if (entitiesBefore >= 0 && entitiesAfter >= entitiesBefore) {
+                meters.entities.record(entitiesAfter - entitiesBefore);
+            }
+        }
+    }
+
+    private Meters createMeters(Method method) {
+        MeterRegistry meterRegistry = registry.get();
+        String name = signature(method);
+        return new Meters(
+                Timer.builder("repository.invocations")
+                        .tag("repository", repository)
+                        .tag("method", name)
+                        .publishPercentiles(PERCENTILES)
+                        .publishPercentileHistogram()
+                        .register(meterRegistry),
+                DistributionSummary.builder("repository.rows")
+                        .tag("repository", repository)
+                        .tag("method", name)
+                        .publishPercentiles(PERCENTILES)
+                        .register(meterRegistry),
+                DistributionSummary.builder("repository.entities.loaded")
+                        .tag("repository", repository)
+                        .tag("method", name)
+                        .publishPercentiles(PERCENTILES)
+                        .register(meterRegistry),
+                Counter.builder("repository.errors")
+                        .tag("repository", repository)
+                        .tag("method", name)
+                        .register(meterRegistry));
+    }
+
+    private static String signature(Method method) {
+        StringJoiner parameters = new StringJoiner(",", method.getName() + "(", ")");
+        for (Class<?> type : method.getParameterTypes()) {
+            parameters.add(type.getSimpleName());
+        }
+        return parameters.toString();
+    }
+
+    /**
+     * 반환값의 row 수. 알 수 없으면 (count, update 결과, Stream 등) -1
+     */
+    private long rows(Object result) {
+        if (result == null) {
+            return 0;
+        }
+        if (result instanceof Collection) {
+            return ((Collection<?>) result).size();
+        }
+        if (result instanceof Slice) {
+            return ((Slice<?>) result).getNumberOfElements();
+        }
+        if (result instanceof Optional) {
+            return ((Optional<?>) result).isPresent() ? 1 : 0;
+        }
+        if (result instanceof Number || result instanceof Boolean || result instanceof BaseStream) {
+            return -1;
+        }
+        return 1;
+    }
+
+    /**
+     * 지금 스레드에 묶인 영속성 컨텍스트의 엔티티 수. 묶인 게 없으면 -1
+     */
+    private int managedEntities() {
+        EntityManagerFactory emf = entityManagerFactory.get();
+        if (emf == null) {
+            return -1;
+        }
+        EntityManagerHolder holder = (EntityManagerHolder) TransactionSynchronizationManager.getResource(emf);
+        if (holder == null) {
+            return -1;
+        }
+        return holder.getEntityManager().unwrap(SessionImplementor.class)
+                .getPersistenceContext()
+                .getNumberOfManagedEntities();
+    }
+
+    private static class Meters {
+        private final Timer timer;
+        private final DistributionSummary rows;
+        private final DistributionSummary entities;
+        private final Counter errors;
+
+        Meters(Timer timer, DistributionSummary rows, DistributionSummary entities, Counter errors) {
+            this.timer = timer;
+            this.rows = rows;
+            this.entities = entities;
+            this.errors = errors;
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package study.datajpa.repository.support;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.aop.framework.Advised;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.data.repository.Repository;
+import org.springframework.data.repository.core.support.RepositoryFactoryBeanSupport;
+import org.springframework.stereotype.Component;
+
+import javax.persistence.EntityManagerFactory;
+
+/**
+ * 모든 레포지토리 메서드에 RepositoryMetricsInterceptor 를 건다.
+ * - 스프링 데이터 레포지토리: 레포지토리 프록시를 만들 때 advice 추가 (MemberRepositoryImpl 같은 커스텀 구현도 프록시를 거친다)
+ * - @Repository 클래스 (MemberJpaRepository, MemberQueryRepository): 프록시로 감싼다.
+ *
+ * BeanPostProcessor 는 일찍 만들어지므로 MeterRegistry, EntityManagerFactory 는 처음 호출될 때 꺼낸다.
+ */
+@Component
+public class RepositoryMetricsPostProcessor implements BeanPostProcessor {
+    private final ObjectProvider<MeterRegistry> registry;
+    private final ObjectProvider<EntityManagerFactory> entityManagerFactory;
+
+    public RepositoryMetricsPostProcessor(ObjectProvider<MeterRegistry> registry,
+                                          ObjectProvider<EntityManagerFactory> entityManagerFactory) {
+        this.registry = registry;
+        this.entityManagerFactory = entityManagerFactory;
+    }
+
+    @Override
+    public Object postProcessBeforeInitialization(Object bean, String beanName) {
+        if (bean instanceof RepositoryFactoryBeanSupport) {
+            ((RepositoryFactoryBeanSupport<?, ?, ?>) bean).addRepositoryFactoryCustomizer(factory ->
+                    factory.addRepositoryProxyPostProcessor((proxyFactory, repositoryInformation) ->
+                            proxyFactory.addAdvice(interceptor(repositoryInformation.getRepositoryInterface().getSimpleName()))));
+        }
+        return bean;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        // 스프링 데이터 레포지토리는 위에서 처리했다.
+        if (bean instanceof Repository || bean instanceof RepositoryFactoryBeanSupport) {
+            return bean;
+        }
+        Class<?> targetClass = AopUtils.getTargetClass(bean);
+        if (!AnnotatedElementUtils.hasAnnotation(targetClass, org.springframework.stereotype.Repository.class)) {
+            return bean;
+        }
+
+        RepositoryMetricsInterceptor interceptor = interceptor(targetClass.getSimpleName());
+        if (bean instanceof Advised) {
+            ((Advised) bean).addAdvice(interceptor);
+            return bean;
+        }
+        ProxyFactory proxyFactory = new ProxyFactory(bean);
+        proxyFactory.setProxyTargetClass(true);
+        proxyFactory.addAdvice(interceptor);
+        return proxyFactory.getProxy();
+    }
+
+    private RepositoryMetricsInterceptor interceptor(String repository) {
+        return new RepositoryMetricsInterceptor(registry::getObject, entityManagerFactory::getIfAvailable, repository);
+    }
+}
@@ -0,0 +1,359 @@
+package study.datajpa.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.exception.ConstraintViolationException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.orm.jpa.EntityManagerHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.datajpa.dto.BulkJobProgress;
+import study.datajpa.entity.BulkJob;
+import study.datajpa.entity.BulkJobChunk;
+import study.datajpa.entity.BulkJobStatus;
+import study.datajpa.entity.Member;
+import study.datajpa.repository.MemberRepository;
+import study.datajpa.repository.support.PageCountExecutor;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.PersistenceException;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 회원 벌크 업데이트를 member_id 범위(청크)로 나눠서 실행한다.
+ *
+ * update Member m set ... where m.age >= :age 를 한 번에 실행하면 테이블 전체의 row 락을 커밋까지 잡고 있다.
+ * 1. 시작 시점의 min/max(member_id) 를 chunk-size 단위로 나누고
+ * 2. 청크마다 별도 트랜잭션으로 커밋한다. (락은 청크 크기만큼, 청크 시간 동안만)
+ * 3. 청크 사이에 pause-millis 만큼 쉬고, concurrency 개의 스레드로 나눠서 실행한다.
+ * 4. 커밋된 청크는 bulk_job_chunk 에 같은 트랜잭션으로 남기므로, 중간에 죽어도 같은 이름으로 다시 실행하면
+ *    남은 청크만 실행한다.
+ * 5. 같은 작업은 한 곳에서만 실행한다. 시작할 때 bulk_job row 를 compare-and-set 으로 가져가고 (owner, leaseUntil),
+ *    청크를 커밋할 때마다 같은 트랜잭션에서 lease 를 연장한다. 이미 실행 중이면 IllegalStateException.
+ *    lease-millis 동안 연장이 없으면 (실행하던 쪽이 죽으면) 다른 쪽이 이어받을 수 있고, 이어받힌 쪽은 다음 청크에서 실패한다.
+ *
+ * 시작 후에 insert 된 회원(max id 보다 큰 id)은 대상이 아니다.
+ * 호출한 쪽의 영속성 컨텍스트(OSIV 등)는 clear 하지 않고 범위 안의 회원 엔티티만 detach 한다.
+ */
+@Slf4j
+@Service
+public class MemberBulkUpdateService {
+    private final EntityManager em;
+    private final EntityManagerFactory entityManagerFactory;
+    private final MemberRepository memberRepository;
+    private final PageCountExecutor pageCountExecutor;
+    private final TransactionTemplate newTransaction;
+
+    @Value("${datajpa.bulk.chunk-size:10000}")
+    private int chunkSize;
+
+    @Value("${datajpa.bulk.concurrency:1}")
+    private int concurrency;
+
+    @Value("${datajpa.bulk.pause-millis:50}")
+    private long pauseMillis;
+
+    @Value("${datajpa.bulk.lease-millis:60000}")
+    private long leaseMillis;
+
+    public MemberBulkUpdateService(EntityManager em,
+                                   EntityManagerFactory entityManagerFactory,
+                                   MemberRepository memberRepository,
+                                   PageCountExecutor pageCountExecutor,
+                                   PlatformTransactionManager transactionManager) {
+        this.em = em;
+        this.entityManagerFactory = entityManagerFactory;
+        this.memberRepository = memberRepository;
+        this.pageCountExecutor = pageCountExecutor;
+        this.newTransaction = new TransactionTemplate(transactionManager);
+        this.newTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /**
+     * MemberRepository.bulkAgePlus(age) 의 청크 버전
+     */
+    public BulkJobProgress bulkAgePlus(String jobName, int age) {
+        return run(jobName, "bulkAgePlus(" + age + ")",
+                (fromId, toId) -> memberRepository.bulkAgePlus(age, fromId, toId));
+    }
+
+    /**
+     * @param jobName     재시작 키. 완료된 작업이면 아무것도 하지 않고, 다른 쪽에서 실행 중이면 IllegalStateException
+     * @param description 업데이트 내용. 같은 이름으로 다른 업데이트를 재시작하면 예외
+     * @param update      [fromId, toId] 범위만 업데이트하는 벌크 쿼리
+     */
+    public BulkJobProgress run(String jobName, String description, RangeUpdate update) {
+        // 청크는 다른 트랜잭션이므로, 호출한 쪽 트랜잭션이 잡은 락을 기다리다 데드락이 날 수 있다.
+        if (TransactionSynchronizationManager.isActualTransactionActive()
+                && !TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            throw new IllegalStateException("bulk job must not run inside a read-write transaction: " + jobName);
+        }
+
+        String owner = UUID.randomUUID().toString();
+        BulkJob job = startOrResume(jobName, description, owner);
+        if (job.getStatus() == BulkJobStatus.COMPLETED) {
+            return progress(jobName);
+        }
+
+        Set<Long> completed = completedChunks(jobName);
+        Queue<Long> pending = new ConcurrentLinkedQueue<>();
+        for (long fromId = job.getMinId(); fromId <= job.getMaxId(); fromId += job.getChunkSize()) {
+            if (!completed.contains(fromId)) {
+                pending.add(fromId);
+            }
+        }
+        log.info("bulk job {} started: {} of {} chunks remaining", jobName, pending.size(), job.getTotalChunks());
+
+        try {
+            execute(job, owner, pending, completed.size(), update);
+        } catch (RuntimeException e) {
+            finish(jobName, owner, BulkJobStatus.FAILED);
+            throw e;
+        } finally {
+            detachFromCallerContext(job.getMinId(), job.getMaxId());
+            pageCountExecutor.evictAll();
+        }
+
+        finish(jobName, owner, BulkJobStatus.COMPLETED);
+        BulkJobProgress progress = progress(jobName);
+        log.info("bulk job {} completed: {}", jobName, progress);
+        return progress;
+    }
+
+    public BulkJobProgress progress(String jobName) {
+        BulkJob job = em.find(BulkJob.class, jobName);
+        if (job == null) {
+            throw new IllegalArgumentException("unknown bulk job: " + jobName);
+        }
+        Object[] chunks = em.createQuery(
+                "select count(c), coalesce(sum(c.updatedRows), 0) from BulkJobChunk c where c.jobName = :jobName",
+                Object[].class)
+                .setParameter("jobName", jobName)
+                .getSingleResult();
+        return new BulkJobProgress(jobName, job.getStatus(), job.getTotalChunks(),
+                ((Number) chunks[0]).longValue(), ((Number) chunks[1]).longValue());
+    }
+
+    private void execute(BulkJob job, String owner, Queue<Long> pending, int alreadyCompleted, RangeUpdate update) {
+        int threads = Math.max(1, Math.min(concurrency, pending.size()));
+        AtomicInteger sequence = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "bulk-" + job.getName() + "-" + sequence.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        AtomicInteger done = new AtomicInteger(alreadyCompleted);
+        // 한 청크라도 실패하면 다른 스레드도 새 청크를 가져가지 않는다.
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        List<Future<?>> workers = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            workers.add(executor.submit(() -> {
+                Long fromId;
+                while (failure.get() == null && (fromId = pending.poll()) != null) {
+                    try {
+                        runChunk(job, owner, fromId, update);
+                    } catch (RuntimeException e) {
+                        failure.compareAndSet(null, e);
+                        throw e;
+                    }
+                    reportProgress(job, done.incrementAndGet());
+                    if (!pause()) {
+                        return;
+                    }
+                }
+            }));
+        }
+
+        try {
+            for (Future<?> worker : workers) {
+                await(worker);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * 청크 하나 = 트랜잭션 하나 (업데이트 + 완료 기록 + lease 연장)
+     * lease 연장은 마지막에 한다. -> bulk_job row 락을 커밋 직전에만 잡으므로 동시에 도는 청크끼리 기다리지 않는다.
+     * 그 사이 다른 쪽이 작업을 이어받았으면 (owner 가 다르면) 청크를 롤백한다.
+     */
+    private void runChunk(BulkJob job, String owner, long fromId, RangeUpdate update) {
+        long toId = Math.min(fromId + job.getChunkSize() - 1, job.getMaxId());
+        newTransaction.executeWithoutResult(status -> {
+            int rows = update.apply(fromId, toId);
+            em.persist(new BulkJobChunk(job.getName(), fromId, toId, rows));
+            int renewed = em.createQuery("update BulkJob j set j.leaseUntil = :leaseUntil" +
+                    " where j.name = :name and j.owner = :owner")
+                    .setParameter("leaseUntil", LocalDateTime.now().plusNanos(leaseMillis * 1_000_000))
+                    .setParameter("name", job.getName())
+                    .setParameter("owner", owner)
+                    .executeUpdate();
+            if (renewed == 0) {
+                throw new IllegalStateException("bulk job " + job.getName() + " was taken over by another runner");
+            }
+        });
+    }
+
+    private void reportProgress(BulkJob job, int done) {
+        int total = job.getTotalChunks();
+        log.debug("bulk job {}: {}/{} chunks", job.getName(), done, total);
+        // 10% 단위로만 info
+        if (done * 10L / total > (done - 1) * 10L / total) {
+            log.info("bulk job {}: {}/{} chunks ({}%)", job.getName(), done, total, done * 100L / total);
+        }
+    }
+
+    private boolean pause() {
+        if (pauseMillis <= 0) {
+            return true;
+        }
+        try {
+            Thread.sleep(pauseMillis);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * 처음 실행: bulk_job insert. 동시에 처음 실행한 쪽은 PK 충돌 -> 이미 실행 중
+     * 재시작: FAILED 이거나 lease 가 만료된 RUNNING 일 때만 owner 를 바꾼다. (조건부 update 하나 -> 한 쪽만 성공)
+     */
+    private BulkJob startOrResume(String jobName, String description, String owner) {
+        try {
+            return newTransaction.execute(status -> {
+                LocalDateTime now = LocalDateTime.now();
+                LocalDateTime leaseUntil = now.plusNanos(leaseMillis * 1_000_000);
+                BulkJob job = em.find(BulkJob.class, jobName);
+                if (job == null) {
+                    Object[] range = em.createQuery("select min(m.id), max(m.id) from Member m", Object[].class)
+                            .getSingleResult();
+                    long minId = range[0] == null ? 0 : (Long) range[0];
+                    long maxId = range[1] == null ? -1 : (Long) range[1];
+                    job = new BulkJob(jobName, description, minId, maxId, chunkSize, owner, leaseUntil);
+                    em.persist(job);
+                    em.flush();
+                    return job;
+                }
+                // 호출한 쪽 영속성 컨텍스트(OSIV)에 예전 상태가 남아 있을 수 있다.
+                em.refresh(job);
+                if (!job.getDescription().equals(description)) {
+                    throw new IllegalStateException("bulk job " + jobName + " was started as " + job.getDescription()
+                            + ", not " + description);
+                }
+                if (job.getStatus() == BulkJobStatus.COMPLETED) {
+                    return job;
+                }
+
+                int acquired = em.createQuery("update BulkJob j" +
+                        " set j.status = :running, j.owner = :owner, j.leaseUntil = :leaseUntil" +
+                        " where j.name = :name" +
+                        " and (j.status = :failed or (j.status = :running and j.leaseUntil < :now))")
+                        .setParameter("running", BulkJobStatus.RUNNING)
+                        .setParameter("failed", BulkJobStatus.FAILED)
+                        .setParameter("owner", owner)
+                        .setParameter("leaseUntil", leaseUntil)
+                        .setParameter("name", jobName)
+                        .setParameter("now", now)
+                        .executeUpdate();
+                if (acquired == 0) {
+                    throw alreadyRunning(jobName, null);
+                }
+                em.refresh(job);
+                return job;
+            });
+        } catch (DataIntegrityViolationException e) {
+            throw alreadyRunning(jobName, e);
+        } catch (PersistenceException e) {
+            // em.flush() 에서 난 PK 충돌은 번역되지 않고 그대로 올라온다.
+            if (e.getCause() instanceof ConstraintViolationException) {
+                throw alreadyRunning(jobName, e);
+            }
+            throw e;
+        }
+    }
+
+    private IllegalStateException alreadyRunning(String jobName, RuntimeException cause) {
+        return new IllegalStateException("bulk job " + jobName + " is already running", cause);
+    }
+
+    private Set<Long> completedChunks(String jobName) {
+        return new HashSet<>(em.createQuery("select c.fromId from BulkJobChunk c where c.jobName = :jobName", Long.class)
+                .setParameter("jobName", jobName)
+                .getResultList());
+    }
+
+    /**
+     * 아직 owner 일 때만 상태를 바꾼다. -> 이어받힌 쪽이 나중에 끝나도 이어받은 쪽의 상태를 덮어쓰지 않는다.
+     */
+    private void finish(String jobName, String owner, BulkJobStatus status) {
+        newTransaction.executeWithoutResult(tx -> {
+            int changed = em.createQuery("update BulkJob j set j.status = :status, j.owner = null, j.leaseUntil = null" +
+                    " where j.name = :name and j.owner = :owner")
+                    .setParameter("status", status)
+                    .setParameter("name", jobName)
+                    .setParameter("owner", owner)
+                    .executeUpdate();
+            if (changed == 0) {
+                log.warn("bulk job {} was taken over by another runner, status {} not recorded", jobName, status);
+            }
+        });
+    }
+
+    /**
+     * clearAutomatically 대신 호출한 쪽 영속성 컨텍스트에서 범위 안의 회원만 detach 한다.
+     * (2차 캐시의 Member 리전은 벌크 쿼리가 실행될 때 하이버네이트가 비운다)
+     */
+    private void detachFromCallerContext(long minId, long maxId) {
+        EntityManagerHolder holder =
+                (EntityManagerHolder) TransactionSynchronizationManager.getResource(entityManagerFactory);
+        if (holder == null) {
+            return;
+        }
+        SessionImplementor session = holder.getEntityManager().unwrap(SessionImplementor.class);
+        List<Object> entities = new ArrayList<>(session.getPersistenceContext().getEntitiesByKey().values());
+        for (Object entity : entities) {
+            if (entity instanceof Member) {
+                Long id = ((Member) entity).getId();
+                if (id != null && id >= minId && id <= maxId) {
+                    session.evict(entity);
+                }
+            }
+        }
+    }
+
+    private void await(Future<?> worker) {
+        try {
+            worker.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted while waiting for bulk job", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    /**
+     * [fromId, toId] 범위의 회원만 업데이트하고 업데이트된 row 수를 반환한다.
+     */
+    @FunctionalInterface
+    public interface RangeUpdate {
+        int apply(long fromId, long toId);
+    }
+}
@@ -0,0 +1,72 @@
+package study.datajpa.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import study.datajpa.dto.MemberDto;
+import study.datajpa.repository.MemberRepository;
+
+import javax.persistence.EntityManager;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * 회원 전체 export (NDJSON)
+ *
+ * findAll() 은 전체 회원과 팀을 영속성 컨텍스트에 한 번에 올리기 때문에 데이터가 많으면 OOM 이 난다.
+ * 디비 커서로 한 줄씩 읽어서 바로 응답에 쓰고, 주기적으로 영속성 컨텍스트를 비운다.
+ * 힙 사용량은 테이블 크기가 아니라 fetch-size 에 비례한다.
+ */
+@Service
+@RequiredArgsConstructor
+public class MemberExportService {
+    private static final byte NEW_LINE = '\n';
+
+    private final MemberRepository memberRepository;
+    private final EntityManager em;
+    private final ObjectMapper objectMapper;
+
+    @Value("${datajpa.export.fetch-size:500}")
+    private int fetchSize;
+
+    @Value("${datajpa.export.detach-interval:1000}")
+    private int detachInterval;
+
+    /**
+     * 스트림이 열려있는 동안 커넥션을 잡고 있어야 하므로 트랜잭션 안에서 끝까지 쓴다.
+     *
+     * @return export 한 row 수
+     */
+    @Transactional(readOnly = true)
+    public long exportNdjson(OutputStream out) {
+        ObjectWriter writer = objectMapper.writerFor(MemberDto.class);
+        long rows = 0;
+
+        try (Stream<MemberDto> stream = memberRepository.streamMemberDto(fetchSize)) {
+            OutputStream buffered = new BufferedOutputStream(out);
+            Iterator<MemberDto> iterator = stream.iterator();
+            while (iterator.hasNext()) {
+                buffered.write(writer.writeValueAsBytes(iterator.next()));
+                buffered.write(NEW_LINE);
+                rows++;
+
+                if (rows % detachInterval == 0) {
+                    // 같은 영속성 컨텍스트(OSIV)에 쌓인 엔티티가 있으면 떼어내고, 쓴 만큼 클라이언트로 내보낸다.
+                    em.clear();
+                    buffered.flush();
+                }
+            }
+            buffered.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,20 @@
+package study.datajpa.service;
+
+import lombok.Getter;
+
+/**
+ * import 중 읽을 수 없는 줄을 만났다.
+ * 앞의 chunk 들은 이미 커밋되어 있으므로, 몇 번째 줄에서 멈췄고 몇 건이 들어갔는지 같이 알려준다.
+ * -> 고친 뒤 line 부터 다시 보내면 된다.
+ */
+@Getter
+public class MemberImportException extends IllegalArgumentException {
+    private final long line;
+    private final long committedRows;
+
+    public MemberImportException(long line, long committedRows, String message, Throwable cause) {
+        super("line " + line + ": " + message + " (" + committedRows + " rows committed)", cause);
+        this.line = line;
+        this.committedRows = committedRows;
+    }
+}
@@ -0,0 +1,205 @@
+package study.datajpa.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.datajpa.dto.ImportResult;
+import study.datajpa.dto.MemberImportRow;
+import study.datajpa.entity.Member;
+import study.datajpa.entity.Team;
+import study.datajpa.repository.TeamRepository;
+
+import javax.persistence.EntityManager;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * 회원 벌크 import
+ *
+ * save() 를 한 건씩 호출하면 row 마다 최소 2번(시퀀스 + insert) 디비를 왕복한다.
+ * 입력을 한 줄씩 읽어서 chunk 단위로 모은 다음
+ * 1. chunk 안의 팀을 먼저 insert (없는 팀만)
+ * 2. 회원을 persist -> flush 시점에 hibernate.jdbc.batch_size 만큼 JDBC batch 로 나간다.
+ * 3. flush/clear 후 commit -> 영속성 컨텍스트가 chunk 크기 이상으로 커지지 않는다.
+ * 입력 전체를 메모리에 올리지 않으므로 row 수와 상관없이 메모리 사용량이 일정하다.
+ * 중간에 실패하면 앞의 chunk 는 커밋된 채로 남는다. -> 예외에 실패한 줄 번호와 커밋된 row 수를 담는다.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class MemberImportService {
+    private static final List<String> CSV_HEADER = Arrays.asList("username", "age", "teamName");
+
+    private final EntityManager em;
+    private final TeamRepository teamRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+
+    @Value("${datajpa.import.chunk-size:1000}")
+    private int chunkSize;
+
+    /**
+     * username,age,teamName 형식. 첫 줄이 헤더(username,age[,teamName])와 같을 때만 건너뛴다.
+     * 따옴표로 감싼 값은 지원하지 않는다.
+     */
+    public ImportResult importCsv(InputStream in) {
+        return importLines(in, MemberImportService::isCsvHeader, line -> {
+            String[] columns = line.split(",", -1);
+            if (columns.length < 2) {
+                throw new IllegalArgumentException("expected username,age[,teamName] but was: " + line);
+            }
+            String teamName = columns.length > 2 && !columns[2].trim().isEmpty() ? columns[2].trim() : null;
+            return new MemberImportRow(columns[0].trim(), Integer.parseInt(columns[1].trim()), teamName);
+        });
+    }
+
+    /**
+     * 한 줄에 json 객체 하나 (null 은 객체가 아니므로 잘못된 줄이다)
+     */
+    public ImportResult importNdjson(InputStream in) {
+        return importLines(in, line -> false, line -> {
+            MemberImportRow row;
+            try {
+                row = objectMapper.readValue(line, MemberImportRow.class);
+            } catch (IOException e) {
+                throw new IllegalArgumentException("invalid json line: " + line, e);
+            }
+            if (row == null) {
+                throw new IllegalArgumentException("expected a json object but was: " + line);
+            }
+            return row;
+        });
+    }
+
+    private static boolean isCsvHeader(String line) {
+        String[] columns = line.split(",", -1);
+        if (columns.length < 2 || columns.length > CSV_HEADER.size()) {
+            return false;
+        }
+        for (int i = 0; i < columns.length; i++) {
+            if (!columns[i].trim().equals(CSV_HEADER.get(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @param header 첫 줄에만 적용한다. true 면 그 줄을 건너뛴다.
+     */
+    private ImportResult importLines(InputStream in, Predicate<String> header, Function<String, MemberImportRow> parser) {
+        long start = System.currentTimeMillis();
+        long rows = 0;
+        // 팀 이름 -> id. 팀 수만큼만 커진다.
+        Map<String, Long> teamIds = new HashMap<>();
+        List<MemberImportRow> chunk = new ArrayList<>(chunkSize);
+        long lineNumber = 0;
+        long chunkStartLine = 1;
+
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.trim().isEmpty() || (lineNumber == 1 && header.test(line))) {
+                    continue;
+                }
+                MemberImportRow row;
+                try {
+                    row = parser.apply(line);
+                } catch (IllegalArgumentException e) {
+                    throw new MemberImportException(lineNumber, rows, e.getMessage(), e);
+                }
+                if (chunk.isEmpty()) {
+                    chunkStartLine = lineNumber;
+                }
+                chunk.add(row);
+                if (chunk.size() == chunkSize) {
+                    rows += writeChunk(chunk, teamIds, chunkStartLine, lineNumber, rows);
+                    chunk.clear();
+                    log.debug("imported {} rows", rows);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        if (!chunk.isEmpty()) {
+            rows += writeChunk(chunk, teamIds, chunkStartLine, lineNumber, rows);
+        }
+
+        ImportResult result = new ImportResult(rows, System.currentTimeMillis() - start);
+        log.info("member import finished: {} rows in {} ms ({} rows/sec)",
+                result.getRows(), result.getElapsedMillis(), String.format("%.1f", result.getRowsPerSecond()));
+        return result;
+    }
+
+    /**
+     * chunk 하나 = 트랜잭션 하나
+     * 실패하면 이 chunk 만 롤백된다. -> 몇 번째 줄부터 다시 보내야 하는지 예외 메시지에 남긴다.
+     */
+    private int writeChunk(List<MemberImportRow> chunk, Map<String, Long> teamIds,
+                           long fromLine, long toLine, long committedRows) {
+        try {
+            insertChunk(chunk, teamIds);
+        } catch (RuntimeException e) {
+            throw new IllegalStateException("member import failed in lines " + fromLine + "-" + toLine
+                    + " (" + committedRows + " rows committed)", e);
+        }
+        return chunk.size();
+    }
+
+    private void insertChunk(List<MemberImportRow> chunk, Map<String, Long> teamIds) {
+        transactionTemplate.executeWithoutResult(status -> {
+            resolveTeams(chunk, teamIds);
+
+            for (MemberImportRow row : chunk) {
+                Member member = new Member(row.getUsername(), row.getAge());
+                if (row.getTeamName() != null) {
+                    // changeTeam() 은 team.members 컬렉션을 초기화하므로 프록시만 걸어둔다.
+                    member.setTeam(em.getReference(Team.class, teamIds.get(row.getTeamName())));
+                }
+                em.persist(member);
+            }
+
+            em.flush();
+            em.clear();
+        });
+    }
+
+    /**
+     * chunk 에 처음 나온 팀 이름만 한 번에 조회하고, 디비에도 없으면 만든다.
+     */
+    private void resolveTeams(List<MemberImportRow> chunk, Map<String, Long> teamIds) {
+        Set<String> unknown = new HashSet<>();
+        for (MemberImportRow row : chunk) {
+            if (row.getTeamName() != null && !teamIds.containsKey(row.getTeamName())) {
+                unknown.add(row.getTeamName());
+            }
+        }
+        if (unknown.isEmpty()) {
+            return;
+        }
+
+        for (Team team : teamRepository.findByNameIn(unknown)) {
+            teamIds.putIfAbsent(team.getName(), team.getId());
+        }
+        for (String name : unknown) {
+            if (!teamIds.containsKey(name)) {
+                Team team = new Team(name);
+                em.persist(team);
+                teamIds.put(name, team.getId());
+            }
+        }
+        // 회원보다 팀 insert 가 먼저 나가도록 여기서 flush
+        em.flush();
+    }
+}
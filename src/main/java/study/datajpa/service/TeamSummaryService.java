@@ -0,0 +1,28 @@
+package study.datajpa.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import study.datajpa.dto.TeamSummaryDto;
+import study.datajpa.repository.TeamRepository;
+
+/**
+ * 팀 + 소속 회원 목록
+ *
+ * 팀마다 team.getMembers() 를 지연로딩하면 팀 수만큼 쿼리가 나간다. (N+1)
+ * hibernate.default_batch_fetch_size 로 아직 초기화되지 않은 members 컬렉션을 batch size 개씩 in 절로 한 번에 읽는다.
+ * => 팀 페이지 1 + count 1 + ceil(팀 수 / batch size)
+ * 팀 fetch join 은 컬렉션이라 페이징이 메모리에서 일어나므로 쓰지 않는다.
+ */
+@Service
+@RequiredArgsConstructor
+public class TeamSummaryService {
+    private final TeamRepository teamRepository;
+
+    @Transactional(readOnly = true)
+    public Page<TeamSummaryDto> summaries(Pageable pageable) {
+        return teamRepository.findAll(pageable).map(TeamSummaryDto::new);
+    }
+}
@@ -0,0 +1,53 @@
+package study.datajpa.sql;
+
+import com.p6spy.engine.common.StatementInformation;
+import com.p6spy.engine.event.SimpleJdbcEventListener;
+import lombok.extern.slf4j.Slf4j;
+
+import java.sql.SQLException;
+import java.time.Instant;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * SQL 로그를 골라서 남긴다.
+ * - slow-threshold 보다 오래 걸린 SQL (또는 실패한 SQL): 바인딩 값과 함께 warn 로그 + SlowQueryBuffer 에 보관
+ * - 나머지: mode 가 ALL 이면 전부, SAMPLED 면 sample-rate 비율만 info 로그
+ *
+ * 바인딩 값이 들어간 SQL 문자열(getSqlWithValues)은 로그를 남길 때만 만든다.
+ */
+@Slf4j
+public class SampledSqlLogger extends SimpleJdbcEventListener {
+    private final SqlLogMode mode;
+    private final long slowThresholdNanos;
+    private final double sampleRate;
+    private final SlowQueryBuffer slowQueries;
+
+    public SampledSqlLogger(SqlLogMode mode, long slowThresholdMillis, double sampleRate, SlowQueryBuffer slowQueries) {
+        this.mode = mode;
+        this.slowThresholdNanos = TimeUnit.MILLISECONDS.toNanos(slowThresholdMillis);
+        this.sampleRate = sampleRate;
+        this.slowQueries = slowQueries;
+    }
+
+    @Override
+    public void onAfterAnyExecute(StatementInformation statementInformation, long timeElapsedNanos, SQLException e) {
+        if (mode == SqlLogMode.OFF) {
+            return;
+        }
+
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(timeElapsedNanos);
+        if (timeElapsedNanos >= slowThresholdNanos || e != null) {
+            String sql = statementInformation.getSqlWithValues();
+            slowQueries.add(new SlowQuery(Instant.now(), elapsedMillis, sql, e == null ? null : e.getMessage()));
+            log.warn("slow sql {}ms: {}", elapsedMillis, sql);
+            return;
+        }
+
+        if (mode == SqlLogMode.ALL || ThreadLocalRandom.current().nextDouble() < sampleRate) {
+            if (log.isInfoEnabled()) {
+                log.info("sql {}ms: {}", elapsedMillis, statementInformation.getSqlWithValues());
+            }
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package study.datajpa.sql;
+
+import lombok.Getter;
+
+import java.time.Instant;
+
+/**
+ * 느린 쿼리 한 건 (바인딩 값이 들어간 SQL)
+ */
+@Getter
+public class SlowQuery {
+    private final Instant executedAt;
+    private final long elapsedMillis;
+    private final String sql;
+    private final String error;
+
+    public SlowQuery(Instant executedAt, long elapsedMillis, String sql, String error) {
+        this.executedAt = executedAt;
+        this.elapsedMillis = elapsedMillis;
+        this.sql = sql;
+        this.error = error;
+    }
+}
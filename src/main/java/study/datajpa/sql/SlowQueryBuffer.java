@@ -0,0 +1,53 @@
+package study.datajpa.sql;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * 최근 느린 쿼리를 capacity 개까지만 들고 있는 링 버퍼
+ * 가득 차면 가장 오래된 것부터 덮어쓴다. 쓰기에 락이 없다.
+ */
+public class SlowQueryBuffer {
+    private final AtomicReferenceArray<SlowQuery> slots;
+    private final AtomicLong sequence = new AtomicLong();
+
+    public SlowQueryBuffer(int capacity) {
+        this.slots = new AtomicReferenceArray<>(capacity);
+    }
+
+    public void add(SlowQuery query) {
+        long index = sequence.getAndIncrement();
+        slots.set((int) (index % slots.length()), query);
+    }
+
+    /**
+     * 최근 것부터 최대 limit 개
+     * 슬롯은 한 바퀴(capacity)만 본다. 더 가면 같은 슬롯을 다시 읽는다.
+     */
+    public List<SlowQuery> recent(int limit) {
+        long last = sequence.get();
+        int count = (int) Math.min(Math.min(last, slots.length()), limit);
+        List<SlowQuery> result = new ArrayList<>(count);
+        long first = Math.max(0, last - slots.length());
+        for (long index = last - 1; index >= first && result.size() < count; index--) {
+            SlowQuery query = slots.get((int) (index % slots.length()));
+            if (query != null) {
+                result.add(query);
+            }
+        }
+        return result;
+    }
+
+    public void clear() {
+        for (int i = 0; i < slots.length(); i++) {
+            slots.set(i, null);
+        }
+        sequence.set(0);
+    }
+
+    public int capacity() {
+        return slots.length();
+    }
+}
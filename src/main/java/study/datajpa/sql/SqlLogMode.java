@@ -0,0 +1,16 @@
+package study.datajpa.sql;
+
+public enum SqlLogMode {
+    /**
+     * 모든 SQL 을 남긴다. (기존 p6spy 로그와 같다, 개발용)
+     */
+    ALL,
+    /**
+     * 느린 SQL 은 모두, 나머지는 sample-rate 비율만 남긴다.
+     */
+    SAMPLED,
+    /**
+     * 남기지 않는다.
+     */
+    OFF
+}
@@ -0,0 +1,27 @@
+package study.datajpa.sql;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * SQL 로그 설정 (datajpa.sql.log.*)
+ * 모든 SQL 을 포맷해서 남기던 org.hibernate.SQL debug / p6spy 로그 대신 SampledSqlLogger 를 쓴다.
+ */
+@Configuration
+public class SqlLoggingConfig {
+
+    @Bean
+    public SlowQueryBuffer slowQueryBuffer(@Value("${datajpa.sql.log.slow-buffer-size:200}") int capacity) {
+        return new SlowQueryBuffer(capacity);
+    }
+
+    // p6spy-spring-boot-starter 가 JdbcEventListener 빈을 찾아서 등록한다.
+    @Bean
+    public SampledSqlLogger sampledSqlLogger(@Value("${datajpa.sql.log.mode:SAMPLED}") SqlLogMode mode,
+                                             @Value("${datajpa.sql.log.slow-threshold-millis:100}") long slowThresholdMillis,
+                                             @Value("${datajpa.sql.log.sample-rate:0.01}") double sampleRate,
+                                             SlowQueryBuffer slowQueryBuffer) {
+        return new SampledSqlLogger(mode, slowThresholdMillis, sampleRate, slowQueryBuffer);
+    }
+}
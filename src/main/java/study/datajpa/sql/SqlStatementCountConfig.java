@@ -0,0 +1,32 @@
+package study.datajpa.sql;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * SQL 문장 수 측정 / N+1 감지
+ * datajpa.sql.statement-count.enabled=true 일 때만 빈이 등록된다. 꺼져있으면 p6spy 리스너 자체가 없으므로 비용이 없다.
+ */
+@Configuration
+@ConditionalOnProperty(name = "datajpa.sql.statement-count.enabled", havingValue = "true")
+public class SqlStatementCountConfig {
+
+    @Bean
+    public SqlStatementCounter sqlStatementCounter(
+            @Value("${datajpa.sql.statement-count.repeat-threshold:3}") int repeatThreshold) {
+        return new SqlStatementCounter(repeatThreshold);
+    }
+
+    // p6spy-spring-boot-starter 가 JdbcEventListener 빈을 찾아서 등록한다.
+    @Bean
+    public StatementCountingListener statementCountingListener(SqlStatementCounter sqlStatementCounter) {
+        return new StatementCountingListener(sqlStatementCounter);
+    }
+
+    @Bean
+    public StatementCountFilter statementCountFilter(SqlStatementCounter sqlStatementCounter) {
+        return new StatementCountFilter(sqlStatementCounter);
+    }
+}
@@ -0,0 +1,129 @@
+package study.datajpa.sql;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * 스레드별로 열린 구간(StatementScope)에 실행된 SQL 을 센다.
+ * 구간은 겹칠 수 있다. (HTTP 요청 안의 트랜잭션 안의 테스트 블록...) 문장은 열려있는 모든 구간에 기록된다.
+ *
+ * 트랜잭션 구간은 트랜잭션 안에서 첫 SQL 이 실행될 때 자동으로 열리고 트랜잭션이 끝날 때 닫힌다.
+ * 구간이 닫힐 때 repeat-threshold 번 이상 반복된 SQL 이 있으면 N+1 의심으로 경고를 남긴다.
+ */
+@Slf4j
+public class SqlStatementCounter {
+    private final ThreadLocal<Deque<StatementScope>> scopes = ThreadLocal.withInitial(ArrayDeque::new);
+    private final Object transactionScopeKey = new Object();
+    private final int repeatThreshold;
+
+    public SqlStatementCounter(int repeatThreshold) {
+        this.repeatThreshold = repeatThreshold;
+    }
+
+    public StatementScope open(String name) {
+        StatementScope scope = new StatementScope(name);
+        scopes.get().push(scope);
+        return scope;
+    }
+
+    public void close(StatementScope scope) {
+        Deque<StatementScope> opened = scopes.get();
+        opened.remove(scope);
+        if (opened.isEmpty()) {
+            scopes.remove();
+        }
+        report(scope);
+    }
+
+    void record(String sql) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()
+                && !TransactionSynchronizationManager.hasResource(transactionScopeKey)) {
+            openTransactionScope();
+        }
+        Deque<StatementScope> opened = scopes.get();
+        if (opened.isEmpty()) {
+            scopes.remove();
+            return;
+        }
+        for (StatementScope scope : opened) {
+            scope.record(sql);
+        }
+    }
+
+    /**
+     * action 이 실행한 SQL 을 센다.
+     */
+    public StatementScope measure(Runnable action) {
+        StatementScope scope = open("measure");
+        try {
+            action.run();
+        } finally {
+            close(scope);
+        }
+        return scope;
+    }
+
+    /**
+     * action 이 maxStatements 개보다 많은 SQL 을 실행하면 AssertionError (테스트용)
+     */
+    public <T> T expectAtMost(int maxStatements, Supplier<T> action) {
+        StatementScope scope = open("expectAtMost(" + maxStatements + ")");
+        T result;
+        try {
+            result = action.get();
+        } finally {
+            close(scope);
+        }
+        if (scope.getTotal() > maxStatements) {
+            throw new AssertionError("expected at most " + maxStatements + " statements but was " + scope);
+        }
+        return result;
+    }
+
+    /**
+     * action 안에서 같은 SQL 이 repeat-threshold 번 이상 반복되면 AssertionError (테스트용)
+     */
+    public <T> T expectNoRepeatedStatements(Supplier<T> action) {
+        StatementScope scope = open("expectNoRepeatedStatements");
+        T result;
+        try {
+            result = action.get();
+        } finally {
+            close(scope);
+        }
+        if (!scope.getRepeated(repeatThreshold).isEmpty()) {
+            throw new AssertionError("repeated statements (possible N+1): " + scope);
+        }
+        return result;
+    }
+
+    private void openTransactionScope() {
+        StatementScope scope = open("transaction " + TransactionSynchronizationManager.getCurrentTransactionName());
+        TransactionSynchronizationManager.bindResource(transactionScopeKey, scope);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(transactionScopeKey);
+                close(scope);
+            }
+        });
+    }
+
+    private void report(StatementScope scope) {
+        List<String> repeated = scope.getRepeated(repeatThreshold);
+        if (!repeated.isEmpty()) {
+            for (String sql : repeated) {
+                log.warn("possible N+1 in [{}]: {} times -> {}", scope.getName(), scope.getCounts().get(sql), sql);
+            }
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("{}", scope);
+        }
+    }
+}
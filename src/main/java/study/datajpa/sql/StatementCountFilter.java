@@ -0,0 +1,31 @@
+package study.datajpa.sql;
+
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * HTTP 요청 하나를 구간으로 SQL 을 센다.
+ */
+public class StatementCountFilter extends OncePerRequestFilter {
+    private final SqlStatementCounter counter;
+
+    public StatementCountFilter(SqlStatementCounter counter) {
+        this.counter = counter;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        StatementScope scope = counter.open(request.getMethod() + " " + request.getRequestURI());
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            counter.close(scope);
+        }
+    }
+}
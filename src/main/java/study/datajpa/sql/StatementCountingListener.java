@@ -0,0 +1,23 @@
+package study.datajpa.sql;
+
+import com.p6spy.engine.common.StatementInformation;
+import com.p6spy.engine.event.SimpleJdbcEventListener;
+
+import java.sql.SQLException;
+
+/**
+ * p6spy 가 감싼 커넥션에서 실행되는 모든 문장을 SqlStatementCounter 로 넘긴다.
+ * batch 는 executeBatch 한 번(디비 왕복 한 번)으로 센다.
+ */
+public class StatementCountingListener extends SimpleJdbcEventListener {
+    private final SqlStatementCounter counter;
+
+    public StatementCountingListener(SqlStatementCounter counter) {
+        this.counter = counter;
+    }
+
+    @Override
+    public void onAfterAnyExecute(StatementInformation statementInformation, long timeElapsedNanos, SQLException e) {
+        counter.record(statementInformation.getSql());
+    }
+}
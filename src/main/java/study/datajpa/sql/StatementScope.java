@@ -0,0 +1,61 @@
+package study.datajpa.sql;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 한 구간(HTTP 요청, 트랜잭션, 테스트 블록)에서 실행된 SQL 통계
+ * 같은 모양(바인딩 전 SQL)의 문장이 몇 번 실행됐는지 센다.
+ */
+public class StatementScope {
+    private final String name;
+    private final Map<String, Integer> counts = new LinkedHashMap<>();
+    private int total;
+
+    StatementScope(String name) {
+        this.name = name;
+    }
+
+    void record(String sql) {
+        total++;
+        counts.merge(sql, 1, Integer::sum);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getTotal() {
+        return total;
+    }
+
+    /**
+     * SQL 모양 -> 실행 횟수 (처음 실행된 순서)
+     */
+    public Map<String, Integer> getCounts() {
+        return counts;
+    }
+
+    /**
+     * threshold 번 이상 반복된 SQL. 지연로딩 N+1 이면 여기에 걸린다.
+     */
+    public List<String> getRepeated(int threshold) {
+        List<String> repeated = new ArrayList<>();
+        counts.forEach((sql, count) -> {
+            if (count >= threshold) {
+                repeated.add(sql);
+            }
+        });
+        return repeated;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder()
+                .append(name).append(": ").append(total).append(" statements");
+        counts.forEach((sql, count) -> builder.append("\n  ").append(count).append("x ").append(sql));
+        return builder.toString();
+    }
+}
@@ -0,0 +1,45 @@
+package study.datajpa.audit;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+import study.datajpa.entity.Member;
+import study.datajpa.repository.MemberRepository;
+
+import javax.persistence.EntityManager;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@Transactional
+class AuditListenerTest {
+    @Autowired
+    MemberRepository memberRepository;
+    @Autowired
+    EntityManager em;
+
+    @Test
+    public void auditFields() throws Exception {
+        // given
+        Member member1 = memberRepository.save(new Member("audit1"));
+        Member member2 = memberRepository.save(new Member("audit2"));
+        em.flush();
+
+        // then
+        assertThat(member1.getCreatedDate()).isNotNull();
+        assertThat(member1.getLastModifiedDate()).isEqualTo(member1.getCreatedDate());
+        assertThat(member1.getCreatedBy()).isNotNull();
+        // 작업자는 트랜잭션당 한 번만 구한다.
+        assertThat(member2.getCreatedBy()).isEqualTo(member1.getCreatedBy());
+
+        // when
+        Thread.sleep(10);
+        member1.setUsername("audit1-changed");
+        em.flush();
+
+        // then
+        assertThat(member1.getLastModifiedDate()).isAfter(member1.getCreatedDate());
+        assertThat(member1.getLastModifiedBy()).isEqualTo(member1.getCreatedBy());
+    }
+}
@@ -0,0 +1,163 @@
+package study.datajpa.controller;
+
+import org.hibernate.Session;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.RequestBuilder;
+import org.springframework.transaction.annotation.Transactional;
+import study.datajpa.entity.Member;
+import study.datajpa.entity.Team;
+import study.datajpa.repository.MemberRepository;
+import study.datajpa.repository.TeamRepository;
+import study.datajpa.sql.SqlStatementCounter;
+
+import javax.persistence.EntityManager;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * 조건부 GET (ETag / Last-Modified -> 304)
+ */
+@SpringBootTest(properties = "datajpa.sql.statement-count.enabled=true")
+@AutoConfigureMockMvc
+@Transactional
+class MemberControllerTest {
+    @Autowired
+    MockMvc mockMvc;
+    @Autowired
+    MemberRepository memberRepository;
+    @Autowired
+    TeamRepository teamRepository;
+    @Autowired
+    EntityManager em;
+    @Autowired
+    SqlStatementCounter counter;
+
+    @Test
+    public void findMember_notModified() throws Exception {
+        // given
+        Member member = memberRepository.save(new Member("etagMember", 10));
+        em.flush();
+
+        for (String path : new String[]{"/members/", "/members2/"}) {
+            MvcResult first = mockMvc.perform(get(path + member.getId()))
+                    .andExpect(status().isOk())
+                    .andExpect(header().exists(HttpHeaders.LAST_MODIFIED))
+                    .andExpect(content().string("etagMember"))
+                    .andReturn();
+            String eTag = first.getResponse().getHeader(HttpHeaders.ETAG);
+            assertThat(eTag).isEqualTo("\"m" + member.getId() + "-0\"");
+
+            // when
+            mockMvc.perform(get(path + member.getId()).header(HttpHeaders.IF_NONE_MATCH, eTag))
+                    // then
+                    .andExpect(status().isNotModified())
+                    .andExpect(content().string(""));
+            mockMvc.perform(get(path + member.getId())
+                    .header(HttpHeaders.IF_MODIFIED_SINCE, first.getResponse().getHeader(HttpHeaders.LAST_MODIFIED)))
+                    .andExpect(status().isNotModified());
+        }
+    }
+
+    @Test
+    public void findMember_modifiedAfterUpdate() throws Exception {
+        // given
+        Member member = memberRepository.save(new Member("etagBefore", 10));
+        em.flush();
+        String eTag = mockMvc.perform(get("/members/" + member.getId()))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        // when
+        member.setUsername("etagAfter");
+        em.flush();
+
+        // then
+        mockMvc.perform(get("/members/" + member.getId()).header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"m" + member.getId() + "-1\""))
+                .andExpect(content().string("etagAfter"));
+    }
+
+    @Test
+    public void findMember_doesNotManageEntity() throws Exception {
+        // given
+        Member member = memberRepository.save(new Member("viewMember", 10));
+        em.flush();
+        em.clear();
+
+        // when
+        for (String path : new String[]{"/members/", "/members2/"}) {
+            mockMvc.perform(get(path + member.getId()))
+                    .andExpect(status().isOk())
+                    .andExpect(content().string("viewMember"));
+        }
+
+        // then: 테스트 트랜잭션의 영속성 컨텍스트를 같이 쓴다. 엔티티를 읽었으면 여기 남아 있다.
+        assertThat(em.unwrap(Session.class).getStatistics().getEntityCount()).isZero();
+    }
+
+    @Test
+    public void findMember_notFound() throws Exception {
+        mockMvc.perform(get("/members/-1")).andExpect(status().isNotFound());
+        mockMvc.perform(get("/members2/-1")).andExpect(status().isNotFound());
+    }
+
+    @Test
+    public void list_pageValidator() throws Exception {
+        // given
+        Team team = teamRepository.save(new Team("etagTeam"));
+        Member member = new Member("etagPage", 10);
+        member.changeTeam(team);
+        memberRepository.save(member);
+        em.flush();
+
+        // id 내림차순 첫 페이지 -> 방금 넣은 회원이 들어 있다.
+        String url = "/members?page=0&size=3&sort=id,desc";
+        String eTag = mockMvc.perform(get(url))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertThat(eTag).startsWith("W/");
+
+        // when, then
+        mockMvc.perform(get(url).header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isNotModified());
+
+        // 팀 이름이 바뀌면 (응답의 teamName) 다른 ETag
+        team.setName("etagTeamRenamed");
+        em.flush();
+        mockMvc.perform(get(url).header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[0].teamName").value("etagTeamRenamed"));
+    }
+
+    @Test
+    public void list_statementCount() {
+        String url = "/members?page=1&size=3&sort=username";
+
+        // 200: 페이지 해시 1 + content 1 + count 1
+        // (테스트 트랜잭션 안이라 count 도 요청 스레드에서 실행된다. 밖에서는 PageCountExecutor 스레드에서 실행/캐시)
+        MvcResult ok = counter.expectAtMost(3, () -> perform(get(url)));
+        assertThat(ok.getResponse().getStatus()).isEqualTo(200);
+        String eTag = ok.getResponse().getHeader(HttpHeaders.ETAG);
+
+        // 304: 페이지 해시 1 (count 는 실행하지 않는다)
+        MvcResult notModified = counter.expectAtMost(1,
+                () -> perform(get(url).header(HttpHeaders.IF_NONE_MATCH, eTag)));
+        assertThat(notModified.getResponse().getStatus()).isEqualTo(304);
+    }
+
+    private MvcResult perform(RequestBuilder request) {
+        try {
+            return mockMvc.perform(request).andReturn();
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
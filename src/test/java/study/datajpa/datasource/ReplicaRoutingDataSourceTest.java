@@ -0,0 +1,217 @@
+package study.datajpa.datasource;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.orm.jpa.support.OpenEntityManagerInViewInterceptor;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.context.request.ServletWebRequest;
+import study.datajpa.entity.Member;
+import study.datajpa.repository.MemberRepository;
+
+import javax.persistence.EntityManagerFactory;
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 서로 다른 in-memory H2 를 primary / replica 두 개로 쓴다. (복제는 없다)
+ * replica 에만 있는 회원이 보이는지로 어느 쪽에서 읽었는지 확인한다.
+ * 트랜잭션을 직접 나눠야 하므로 @Transactional 없음
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:routingPrimary;DB_CLOSE_DELAY=-1",
+        "datajpa.datasource.replica-urls=jdbc:h2:mem:routingReplica;DB_CLOSE_DELAY=-1," +
+                "jdbc:h2:mem:routingReplica2;DB_CLOSE_DELAY=-1"})
+class ReplicaRoutingDataSourceTest {
+    @Autowired
+    MemberRepository memberRepository;
+    @Autowired
+    PlatformTransactionManager transactionManager;
+    @Autowired
+    EntityManagerFactory emf;
+
+    JdbcTemplate primary = jdbc("routingPrimary");
+    JdbcTemplate replica = jdbc("routingReplica");
+    JdbcTemplate replica2 = jdbc("routingReplica2");
+
+    @BeforeEach
+    void copySchema() {
+        // 복제 대신 primary 의 스키마(ddl-auto 로 만든)를 replica 에 그대로 만든다.
+        List<String> script = primary.queryForList("script nodata", String.class);
+        for (JdbcTemplate each : Arrays.asList(replica, replica2)) {
+            each.execute("drop all objects");
+            for (String statement : script) {
+                each.execute(statement);
+            }
+        }
+    }
+
+    @Test
+    public void readOnlyTransaction_readsReplica() {
+        // given
+        insertOnReplicas(900000001L, "replicaOnly", 1031);
+
+        // when
+        // 쿼리 메서드는 읽기 전용 트랜잭션 -> replica
+        List<Member> fromReplica = memberRepository.findUser("replicaOnly", 1031);
+        // 쓰기 트랜잭션 -> primary
+        List<Member> fromPrimary = new TransactionTemplate(transactionManager)
+                .execute(status -> memberRepository.findUser("replicaOnly", 1031));
+
+        // then
+        assertThat(fromReplica).extracting("username").containsExactly("replicaOnly");
+        assertThat(fromPrimary).isEmpty();
+    }
+
+    @Test
+    public void writes_goToPrimary() {
+        // when
+        memberRepository.save(new Member("primaryOnly", 1032));
+
+        // then
+        assertThat(count(primary, "primaryOnly")).isEqualTo(1);
+        assertThat(count(replica, "primaryOnly")).isZero();
+    }
+
+    @Test
+    public void pin_readsOneReplicaPerRequest() {
+        // given: 첫 번째 replica 에만 있는 회원 -> 어느 replica 에서 읽었는지 구분된다.
+        replica.update("insert into member (member_id, username, age, version) values (900000003, 'pinMember', 1035, 0)");
+
+        // when
+        Set<Integer> unpinned = new HashSet<>();
+        Set<Integer> pinned = new HashSet<>();
+        for (int i = 0; i < 4; i++) {
+            unpinned.add(memberRepository.findUser("pinMember", 1035).size());
+        }
+        try (ReplicaRoutingDataSource.Scope ignored = ReplicaRoutingDataSource.pin()) {
+            for (int i = 0; i < 4; i++) {
+                pinned.add(memberRepository.findUser("pinMember", 1035).size());
+            }
+        }
+
+        // then: 범위 밖에서는 트랜잭션마다 돌아가고, 범위 안에서는 한 곳만 읽는다.
+        assertThat(unpinned).containsExactlyInAnyOrder(0, 1);
+        assertThat(pinned).hasSize(1);
+    }
+
+    @Test
+    public void replicaReads_doNotFillCaches() {
+        // given
+        insertOnReplicas(900000004L, "cacheReplica", 1036);
+
+        // when
+        List<Member> fromReplica = memberRepository.findUser("cacheReplica", 1036);
+        // username near-cache 는 miss 를 primary 에서 읽어서 넣는다.
+        List<Member> nearCache = memberRepository.findByUsername("cacheReplica");
+
+        // then
+        assertThat(fromReplica).hasSize(1);
+        assertThat(emf.getCache().contains(Member.class, 900000004L)).isFalse();
+        assertThat(nearCache).isEmpty();
+    }
+
+    @Test
+    public void staleNearCacheHit_doesNotRefillFromReplica() {
+        // given: near-cache 에 primary 에서 읽은 [회원 id] 가 들어 있다.
+        Member cached = memberRepository.save(new Member("staleHit", 1037));
+        assertThat(memberRepository.findByUsername("staleHit")).hasSize(1);
+        emf.getCache().evict(Member.class, cached.getId());
+        // 이벤트 없이 primary 에서 지우고 새로 넣는다. replica 에는 예전 회원만 남아 있다. (복제 지연)
+        primary.update("delete from member where member_id = ?", cached.getId());
+        primary.update("insert into member (member_id, username, age, version) values (900000006, 'staleHit', 1037, 0)");
+        insertOnReplicas(900000005L, "staleHit", 1037);
+
+        // when
+        // hit -> load 가 replica 에서 못 찾음 -> 같은 트랜잭션(replica 커넥션)에서 쿼리 메서드 실행
+        List<Member> fromReplica = memberRepository.findByUsername("staleHit");
+        // 그 결과를 넣지 않았으므로 다음 호출은 primary 에서 채운다.
+        List<Member> refilled = memberRepository.findByUsername("staleHit");
+
+        // then
+        assertThat(fromReplica).extracting("id").containsExactly(900000005L);
+        assertThat(refilled).extracting("id").containsExactly(900000006L);
+    }
+
+    @Test
+    public void openEntityManager_routesEveryTransaction() {
+        // given
+        insertOnReplicas(900000002L, "osivReplica", 1034);
+        OpenEntityManagerInViewInterceptor osiv = new OpenEntityManagerInViewInterceptor();
+        osiv.setEntityManagerFactory(emf);
+        ServletWebRequest request = new ServletWebRequest(new MockHttpServletRequest());
+
+        // when: 요청 하나(세션 하나)에서 읽기 -> 쓰기 -> 읽기
+        osiv.preHandle(request);
+        List<Member> before;
+        List<Member> after;
+        try {
+            before = memberRepository.findUser("osivReplica", 1034);
+            memberRepository.save(new Member("osivPrimary", 1034));
+            after = memberRepository.findUser("osivReplica", 1034);
+        } finally {
+            osiv.afterCompletion(request, null);
+        }
+
+        // then: 쓰기는 앞의 읽기가 잡았던 replica 커넥션이 아니라 primary 로, 뒤의 읽기는 다시 replica 로
+        assertThat(before).hasSize(1);
+        assertThat(after).hasSize(1);
+        assertThat(count(primary, "osivPrimary")).isEqualTo(1);
+        assertThat(count(replica, "osivPrimary")).isZero();
+    }
+
+    @Nested
+    @TestPropertySource(properties = {
+            "spring.datasource.url=jdbc:h2:mem:routingFallback;DB_CLOSE_DELAY=-1",
+            // 아무도 듣지 않는 포트 -> 커넥션 실패
+            "datajpa.datasource.replica-urls=jdbc:h2:tcp://localhost:1/~/routingDown",
+            "datajpa.datasource.replica-connection-timeout-millis=250"})
+    class ReplicaDown {
+        // 바깥 클래스의 @BeforeEach(스키마 복사)도 실행되지만 이 컨텍스트의 디비와는 상관없다.
+        @Autowired
+        MemberRepository memberRepository;
+        @Autowired
+        DataSource dataSource;
+
+        @Test
+        public void readOnlyTransaction_fallsBackToPrimary() throws SQLException {
+            // given
+            memberRepository.save(new Member("fallbackMember", 1033));
+
+            // when
+            List<Member> members = memberRepository.findUser("fallbackMember", 1033);
+
+            // then
+            assertThat(members).hasSize(1);
+            assertThat(dataSource.unwrap(ReplicaRoutingDataSource.class).healthyReplicas()).isEmpty();
+        }
+    }
+
+    // primary 의 시퀀스 id 와 겹치지 않는 id (2차 캐시에 같은 id 가 있으면 안 된다)
+    private void insertOnReplicas(long id, String username, int age) {
+        for (JdbcTemplate each : Arrays.asList(replica, replica2)) {
+            each.update("insert into member (member_id, username, age, version) values (?, ?, ?, 0)", id, username, age);
+        }
+    }
+
+    private static int count(JdbcTemplate jdbcTemplate, String username) {
+        return jdbcTemplate.queryForObject("select count(*) from member where username = ?", Integer.class, username);
+    }
+
+    private static JdbcTemplate jdbc(String database) {
+        return new JdbcTemplate(new DriverManagerDataSource("jdbc:h2:mem:" + database + ";DB_CLOSE_DELAY=-1", "sa", ""));
+    }
+}
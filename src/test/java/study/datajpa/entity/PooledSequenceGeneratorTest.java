@@ -0,0 +1,57 @@
+package study.datajpa.entity;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 시퀀스 값은 롤백되지 않지만 회원 row 는 남기지 않는다. (@Transactional 롤백)
+ */
+@SpringBootTest
+@Transactional
+class PooledSequenceGeneratorTest {
+    @Autowired
+    EntityManager em;
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Value("${spring.jpa.properties.datajpa.id.increment_size}")
+    int incrementSize;
+
+    @Test
+    public void sequenceCalledOncePerBlock() {
+        // 첫 persist 는 이전 블록이 남아 있는지에 따라 시퀀스를 부를 수도 있으므로 측정에서 뺀다.
+        em.persist(new Member("pooledWarmup"));
+        em.flush();
+
+        int inserts = incrementSize * 2 + 1;
+        long before = currentSequenceValue();
+        Set<Long> ids = new HashSet<>();
+        for (int i = 0; i < inserts; i++) {
+            Member member = new Member("pooled" + i);
+            em.persist(member);
+            ids.add(member.getId());
+        }
+        em.flush();
+        long sequenceCalls = (currentSequenceValue() - before) / incrementSize;
+
+        // 시퀀스는 increment_size 건마다 한 번만 호출된다. (블록 경계를 넘을 때만)
+        assertThat(ids).hasSize(inserts);
+        assertThat(sequenceCalls).isLessThanOrEqualTo((inserts + incrementSize - 1) / incrementSize);
+        assertThat(sequenceCalls).isLessThan(inserts);
+    }
+
+    private long currentSequenceValue() {
+        return jdbcTemplate.queryForObject(
+                "select current_value from information_schema.sequences where sequence_name = 'MEMBER_SEQ'", Long.class);
+    }
+}
@@ -0,0 +1,69 @@
+package study.datajpa.repository;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+import study.datajpa.entity.Item;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@Transactional
+class ItemRepositoryTest {
+    @Autowired
+    ItemRepository itemRepository;
+    @Autowired
+    EntityManager em;
+
+    @Test
+    public void saveAllInBatch() {
+        List<Item> items = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            items.add(new Item("batch-" + i));
+        }
+
+        itemRepository.saveAllInBatch(items);
+
+        assertThat(itemRepository.findAllById(Arrays.asList("batch-0", "batch-4"))).hasSize(2);
+    }
+
+    @Test
+    public void saveAllInBatch_keepsCallerEntitiesManaged() {
+        // given: 같은 트랜잭션에서 먼저 영속 상태가 된 엔티티
+        Item loaded = new Item("batch-loaded");
+        em.persist(loaded);
+
+        // when
+        Item written = new Item("batch-new");
+        itemRepository.saveAllInBatch(Arrays.asList(written));
+
+        // then: 넣은 item 만 영속성 컨텍스트에서 빠진다.
+        assertThat(em.contains(loaded)).isTrue();
+        assertThat(em.contains(written)).isFalse();
+    }
+
+    @Test
+    public void upsertAllInBatch() {
+        // given
+        itemRepository.saveAllInBatch(Arrays.asList(new Item("upsert-A"), new Item("upsert-B")));
+        long before = itemRepository.count();
+
+        // when
+        // A, B 는 이미 있고 C, D 는 없다. 같은 목록을 다시 넣어도 결과는 같다.
+        int inserted = itemRepository.upsertAllInBatch(Arrays.asList(
+                new Item("upsert-A"), new Item("upsert-B"), new Item("upsert-C"), new Item("upsert-D")));
+        int again = itemRepository.upsertAllInBatch(Arrays.asList(
+                new Item("upsert-A"), new Item("upsert-B"), new Item("upsert-C"), new Item("upsert-D")));
+
+        // then
+        assertThat(inserted).isEqualTo(2);
+        assertThat(again).isEqualTo(0);
+        assertThat(itemRepository.count()).isEqualTo(before + 2);
+    }
+}
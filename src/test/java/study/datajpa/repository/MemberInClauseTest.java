@@ -0,0 +1,102 @@
+package study.datajpa.repository;
+
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Transactional;
+import study.datajpa.entity.Member;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * findByNames: in 절 패딩 + 청크
+ * 하이버네이트는 컬렉션 파라미터를 in (?, ?, ...) 로 펼친 쿼리를 따로 플랜 캐시에 올린다.
+ * 크기 1~16 을 한 번씩 조회했을 때 플랜 캐시 미스 수로 SQL 모양이 몇 개 생겼는지 본다.
+ */
+@Slf4j
+@SpringBootTest(properties = {
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "datajpa.query.in-clause-chunk-size=16"})
+@Transactional
+class MemberInClauseTest {
+    private static final int MAX_SIZE = 16;
+
+    @Autowired
+    MemberRepository memberRepository;
+    @Autowired
+    EntityManagerFactory emf;
+
+    @Test
+    public void findByNames_chunked() {
+        // given
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            memberRepository.save(new Member("inClauseMember" + i, 10));
+            names.add("inClauseMember" + i);
+        }
+        names.add("inClauseMember0"); // 중복은 한 번만 조회
+
+        // when
+        // 청크 16 -> 16 + 16 + 8 세 번 조회해서 합친다.
+        List<Member> result = memberRepository.findByNames(names);
+
+        // then
+        assertThat(result).hasSize(40);
+        assertThat(result).extracting("username").doesNotHaveDuplicates();
+    }
+
+    @Test
+    public void padding_reusesPlans() {
+        long[] hitsAndMisses = measurePlanCache(memberRepository, emf);
+
+        // 펼친 쿼리는 1, 2, 4, 8, 16 다섯 가지 + 펼치기 전 쿼리 하나
+        assertThat(hitsAndMisses[1]).isLessThanOrEqualTo(6);
+    }
+
+    @Nested
+    @TestPropertySource(properties = "spring.jpa.properties.hibernate.query.in_clause_parameter_padding=false")
+    class WithoutPadding {
+        @Autowired
+        MemberRepository memberRepository;
+        @Autowired
+        EntityManagerFactory emf;
+
+        @Test
+        public void everySizeIsNewPlan() {
+            long[] hitsAndMisses = measurePlanCache(memberRepository, emf);
+
+            assertThat(hitsAndMisses[1]).isGreaterThanOrEqualTo(MAX_SIZE);
+        }
+    }
+
+    /**
+     * 크기 1 ~ MAX_SIZE 로 한 번씩 조회하고 플랜 캐시 hit/miss 를 남긴다.
+     */
+    static long[] measurePlanCache(MemberRepository memberRepository, EntityManagerFactory emf) {
+        Statistics statistics = emf.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        for (int size = 1; size <= MAX_SIZE; size++) {
+            List<String> names = new ArrayList<>();
+            for (int i = 0; i < size; i++) {
+                names.add("planCacheMember" + i);
+            }
+            memberRepository.findByNames(names);
+        }
+
+        long hits = statistics.getQueryPlanCacheHitCount();
+        long misses = statistics.getQueryPlanCacheMissCount();
+        log.info("findByNames sizes 1..{}: plan cache hits={} misses={} hit rate={}%",
+                MAX_SIZE, hits, misses, hits * 100 / Math.max(1, hits + misses));
+        return new long[]{hits, misses};
+    }
+}
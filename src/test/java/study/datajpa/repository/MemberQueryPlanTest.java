@@ -0,0 +1,138 @@
+package study.datajpa.repository;
+
+import com.p6spy.engine.common.StatementInformation;
+import com.p6spy.engine.event.SimpleJdbcEventListener;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+import study.datajpa.entity.Member;
+
+import javax.persistence.EntityManager;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 회원 조건 조회가 member 테이블을 풀스캔하지 않는지 H2 의 EXPLAIN 으로 확인한다.
+ * 레포지토리 메서드를 실제로 호출해서 나간 SQL(바인딩 값 포함)을 모으고, member 를 읽는 select 마다 실행계획을 본다.
+ * 조건이 없는 조회(findAll, findUsernameList ...)는 풀스캔이 맞으므로 대상이 아니다.
+ */
+@SpringBootTest
+@Transactional
+class MemberQueryPlanTest {
+    private static final String TABLE_SCAN = "PUBLIC.MEMBER.tableScan";
+
+    @Autowired
+    MemberRepository memberRepository;
+    @Autowired
+    MemberJpaRepository memberJpaRepository;
+    @Autowired
+    SqlCapture sqlCapture;
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+    @Autowired
+    EntityManager em;
+
+    @TestConfiguration
+    static class SqlCaptureConfig {
+        // p6spy-spring-boot-starter 가 JdbcEventListener 빈을 등록한다.
+        @Bean
+        SqlCapture sqlCapture() {
+            return new SqlCapture();
+        }
+    }
+
+    @Test
+    public void memberQueries_useIndexes() {
+        // given
+        for (int i = 0; i < 10; i++) {
+            memberRepository.save(new Member("planMember" + i, 40 + i % 3));
+        }
+        em.flush();
+        em.clear();
+
+        // when
+        sqlCapture.start();
+        memberRepository.findByUsername("planMember1");
+        memberRepository.findByUsernameAndAgeGreaterThan("planMember1", 10);
+        memberRepository.findUser("planMember1", 41);
+        memberRepository.findByNames(Arrays.asList("planMember1", "planMember2"));
+        memberRepository.findListByUsername("planMember1");
+        memberRepository.findMemberByUsername("planMember1");
+        memberRepository.findOptionalByUsername("planMember1");
+        memberRepository.findReadOnlyByUsername("planMember1");
+        memberRepository.findLockByUsername("planMember1");
+        Long id = memberRepository.findMemberByUsername("planMember1").getId();
+        memberRepository.findViewById(id);
+        memberRepository.findValidatorById(id);
+        PageRequest page = PageRequest.of(0, 3, Sort.by(Sort.Direction.DESC, "username"));
+        memberRepository.findByAge(40, page);
+        memberRepository.findSliceByAge(40, page);
+        memberRepository.findListByAge(40, page);
+        memberRepository.findPageByAge(40, page);
+        memberJpaRepository.findByUsernameAndAgeGreaterThan("planMember1", 10);
+        memberJpaRepository.findByPage(40, 0, 3);
+        memberJpaRepository.totalCount(40);
+        List<String> statements = sqlCapture.stop();
+
+        // then
+        List<String> memberSelects = new ArrayList<>();
+        List<String> tableScans = new ArrayList<>();
+        for (String sql : statements) {
+            String normalized = sql.trim().toLowerCase(Locale.ROOT);
+            if (!normalized.startsWith("select") || !normalized.contains(" from member ")) {
+                continue;
+            }
+            memberSelects.add(sql);
+            String plan = explain(sql);
+            if (plan.contains(TABLE_SCAN)) {
+                tableScans.add(sql + "\n" + plan);
+            }
+        }
+
+        assertThat(memberSelects).hasSizeGreaterThanOrEqualTo(16);
+        assertThat(tableScans).as("queries scanning the whole member table").isEmpty();
+    }
+
+    private String explain(String sql) {
+        // for update 는 실행계획과 상관없다.
+        String select = sql.replaceAll("(?i)\\s+for update\\s*$", "");
+        return String.join("\n", jdbcTemplate.queryForList("explain " + select, String.class));
+    }
+
+    /**
+     * start ~ stop 사이에 실행된 SQL 을 바인딩 값을 채운 형태로 모은다.
+     */
+    static class SqlCapture extends SimpleJdbcEventListener {
+        private final List<String> statements = new CopyOnWriteArrayList<>();
+        private volatile boolean capturing;
+
+        void start() {
+            statements.clear();
+            capturing = true;
+        }
+
+        List<String> stop() {
+            capturing = false;
+            return new ArrayList<>(statements);
+        }
+
+        @Override
+        public void onAfterAnyExecute(StatementInformation statementInformation, long timeElapsedNanos, SQLException e) {
+            if (capturing) {
+                statements.add(statementInformation.getSqlWithValues());
+            }
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package study.datajpa.repository;
+
+import org.hibernate.FlushMode;
+import org.hibernate.Session;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.orm.jpa.EntityManagerFactoryUtils;
+import org.springframework.orm.jpa.EntityManagerHolder;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.datajpa.entity.Member;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 쿼리 메서드의 기본 읽기 전용 트랜잭션 (MemberRepository)
+ * 요청 하나처럼(OSIV) EntityManager 를 묶어두고, 레포지토리 호출이 끝난 뒤 세션에 남은 엔티티를 본다.
+ * 바깥 트랜잭션이 없어야 하므로 @Transactional 없음
+ */
+@SpringBootTest
+class MemberRepositoryReadOnlyTest {
+    @Autowired
+    MemberRepository memberRepository;
+    @Autowired
+    EntityManagerFactory emf;
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    EntityManager em;
+
+    @BeforeEach
+    void openRequest() {
+        em = emf.createEntityManager();
+        TransactionSynchronizationManager.bindResource(emf, new EntityManagerHolder(em));
+    }
+
+    @AfterEach
+    void closeRequest() {
+        TransactionSynchronizationManager.unbindResource(emf);
+        EntityManagerFactoryUtils.closeEntityManager(em);
+    }
+
+    @Test
+    public void queryMethod_loadsReadOnly() {
+        // given
+        memberRepository.save(new Member("readOnlyMember", 1021));
+        em.clear();
+
+        // when
+        List<Member> members = memberRepository.findUser("readOnlyMember", 1021);
+
+        // then: 스냅샷 없이 읽었고, 세션은 트랜잭션이 끝나면서 원래대로 돌아왔다.
+        Session session = em.unwrap(Session.class);
+        assertThat(members).hasSize(1);
+        assertThat(session.isReadOnly(members.get(0))).isTrue();
+        assertThat(session.isDefaultReadOnly()).isFalse();
+        assertThat(session.getHibernateFlushMode()).isEqualTo(FlushMode.AUTO);
+    }
+
+    @Test
+    public void writeTransaction_keepsDirtyChecking() {
+        // given
+        Member member = memberRepository.save(new Member("writableMember", 1022));
+        em.clear();
+
+        // when: 서비스처럼 바깥 쓰기 트랜잭션에 참여하면 변경 감지가 된다.
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            Member found = memberRepository.findUser("writableMember", 1022).get(0);
+            assertThat(em.unwrap(Session.class).isReadOnly(found)).isFalse();
+            found.setAge(1023);
+        });
+        em.clear();
+
+        // then
+        assertThat(memberRepository.findById(member.getId()).get().getAge()).isEqualTo(1023);
+    }
+
+    @Test
+    public void modifying_runsInWriteTransaction() {
+        // given
+        Member member = memberRepository.save(new Member("bulkReadOnlyMember", 1024));
+
+        // when: 바깥 트랜잭션 없이 호출해도 (TransactionRequiredException 없이) 쓰기 트랜잭션으로 실행된다.
+        int updated = memberRepository.bulkAgePlus(1024, member.getId(), member.getId());
+        em.clear();
+
+        // then
+        assertThat(updated).isEqualTo(1);
+        assertThat(memberRepository.findById(member.getId()).get().getAge()).isEqualTo(1025);
+    }
+}
@@ -9,6 +9,8 @@ import org.springframework.data.domain.Slice;
 import org.springframework.data.domain.Sort;
 import org.springframework.test.annotation.Rollback;
 import org.springframework.transaction.annotation.Transactional;
+import study.datajpa.dto.CursorResult;
+import study.datajpa.dto.MemberCursor;
 import study.datajpa.dto.MemberDto;
 import study.datajpa.entity.Member;
 import study.datajpa.entity.Team;
@@ -22,6 +24,7 @@ import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.contentOf;
+import static org.assertj.core.api.Assertions.tuple;
 
 @SpringBootTest
 @Transactional
@@ -238,6 +241,25 @@ class MemberRepositoryTest {
         assertThat(page.hasNext()).isTrue();
     }
 
+    @Test
+    public void paging_parallel_count() {
+        // given
+        memberRepository.save(new Member("member1", 1011));
+        memberRepository.save(new Member("member2", 1011));
+        memberRepository.save(new Member("member3", 1011));
+
+        PageRequest pageRequest = PageRequest.of(0, 2, Sort.Direction.DESC, "username");
+
+        // when
+        // 쓰기 트랜잭션 안에서는 커밋 전 데이터를 봐야하므로 count 도 같은 스레드에서 실행된다.
+        Page<Member> page = memberRepository.findPageByAge(1011, pageRequest);
+
+        // then
+        assertThat(page.getContent()).extracting("username").containsExactly("member3", "member2");
+        assertThat(page.getTotalElements()).isEqualTo(3);
+        assertThat(page.getTotalPages()).isEqualTo(2);
+    }
+
     @Test
     public void paging_slice() {
         // given
@@ -283,6 +305,76 @@ class MemberRepositoryTest {
         List<Member> page = memberRepository.findListByAge(age, pageRequest);
     }
 
+    @Test
+    public void paging_dto() {
+        // given
+        Team teamA = teamRepository.save(new Team("dtoPageTeam"));
+        memberRepository.save(new Member("dtoPage1", 10, teamA));
+        memberRepository.save(new Member("dtoPage2", 10, teamA));
+        memberRepository.save(new Member("dtoPage3", 10));
+        long total = memberRepository.count();
+
+        em.flush();
+        em.clear();
+
+        PageRequest pageRequest = PageRequest.of(0, 2000, Sort.by("username"));
+
+        // when
+        Page<MemberDto> page = memberRepository.findMemberDtoPage(pageRequest);
+
+        // then
+        assertThat(page.getTotalElements()).isEqualTo(total);
+        assertThat(page.getContent()).extracting("username", "teamName")
+                .contains(tuple("dtoPage1", "dtoPageTeam"),
+                        tuple("dtoPage3", null));
+    }
+
+    @Test
+    public void paging_cursor() {
+        // given
+        memberRepository.save(new Member("cursor_member1", 10));
+        memberRepository.save(new Member("cursor_member2", 10));
+        memberRepository.save(new Member("cursor_member3", 10));
+        memberRepository.save(new Member("cursor_member4", 10));
+        memberRepository.save(new Member("cursor_member5", 10));
+
+        // "cursor_" 바로 뒤부터 읽는다.
+        MemberCursor start = new MemberCursor("cursor_", 0L);
+
+        // when
+        CursorResult<MemberDto> first = memberRepository.findMemberDtoByCursor(start, 3);
+        CursorResult<MemberDto> second = memberRepository.findMemberDtoByCursor(MemberCursor.decode(first.getNext()), 2);
+
+        // then
+        assertThat(first.getContent()).extracting("username")
+                .containsExactly("cursor_member1", "cursor_member2", "cursor_member3");
+        assertThat(first.hasNext()).isTrue();
+        assertThat(second.getContent()).extracting("username")
+                .containsExactly("cursor_member4", "cursor_member5");
+    }
+
+    @Test
+    public void paging_cursor_nullUsername() {
+        // given
+        Member noName1 = memberRepository.save(new Member(null, 10));
+        Member noName2 = memberRepository.save(new Member(null, 10));
+
+        // username 이 null 인 구간에서 noName1 바로 앞부터 읽는다.
+        MemberCursor start = new MemberCursor(null, noName1.getId() - 1);
+
+        // when
+        CursorResult<MemberDto> first = memberRepository.findMemberDtoByCursor(start, 2);
+        MemberCursor next = MemberCursor.decode(first.getNext());
+        CursorResult<MemberDto> second = memberRepository.findMemberDtoByCursor(next, 1);
+
+        // then
+        assertThat(first.getContent()).extracting("id").containsExactly(noName1.getId(), noName2.getId());
+        assertThat(next.getUsername()).isNull();
+        assertThat(next.getId()).isEqualTo(noName2.getId());
+        // null 구간이 끝나면 username 이 있는 회원으로 넘어간다.
+        assertThat(second.getContent()).hasSize(1).extracting("username").doesNotContainNull();
+    }
+
     @Test
     public void bulkUpdate() {
         memberRepository.save(new Member("member1", 10));
@@ -0,0 +1,122 @@
+package study.datajpa.repository;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.datajpa.entity.Member;
+import study.datajpa.entity.MemberTask;
+import study.datajpa.entity.MemberTaskStatus;
+
+import javax.persistence.EntityManager;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 워커마다 claim 트랜잭션을 커밋해야 하므로 @Transactional 없음
+ */
+@Slf4j
+@SpringBootTest
+class MemberTaskRepositoryTest {
+    private static final int TASKS = 300;
+    private static final int BATCH = 10;
+
+    @Autowired
+    MemberTaskRepository memberTaskRepository;
+    @Autowired
+    EntityManager em;
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @Test
+    public void claim_disjointAcrossWorkers() throws Exception {
+        // 워커 수를 늘려도 같은 작업을 두 번 가져가지 않고, 처리량이 늘어나는지 본다.
+        for (int workers : new int[]{1, 2, 4, 8}) {
+            Set<Long> created = createTasks(TASKS);
+
+            long start = System.nanoTime();
+            List<List<Long>> perWorker = drain(workers);
+            long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            List<Long> claimed = perWorker.stream().flatMap(List::stream).collect(Collectors.toList());
+
+            // 경합에서 진 워커가 빈 결과를 "큐가 비었다" 로 오해하고 먼저 빠지면 안 된다.
+            if (workers > 1) {
+                assertThat(perWorker).allSatisfy(processed -> assertThat(processed).isNotEmpty());
+            }
+
+            assertThat(claimed).doesNotHaveDuplicates();
+            assertThat(new HashSet<>(claimed)).isEqualTo(created);
+            assertThat(memberTaskRepository.countByStatus(MemberTaskStatus.PENDING)).isZero();
+            log.info("workers={} tasks={} elapsed={}ms throughput={} tasks/sec",
+                    workers, TASKS, elapsedMillis, TASKS * 1000L / Math.max(1, elapsedMillis));
+        }
+    }
+
+    @Test
+    public void releaseExpired() {
+        Set<Long> created = createTasks(3);
+        List<MemberTask> claimed = memberTaskRepository.claim("deadWorker", 3);
+        assertThat(claimed).extracting("id").containsExactlyInAnyOrderElementsOf(created);
+
+        // 처리하지 못한 작업은 만료 후 다시 PENDING
+        int released = memberTaskRepository.releaseExpired(LocalDateTime.now().plusSeconds(1));
+
+        assertThat(released).isGreaterThanOrEqualTo(3);
+        List<MemberTask> reclaimed = memberTaskRepository.claim("aliveWorker", 3);
+        assertThat(reclaimed).extracting("owner").containsOnly("aliveWorker");
+        memberTaskRepository.complete("aliveWorker",
+                reclaimed.stream().map(MemberTask::getId).collect(Collectors.toList()));
+    }
+
+    /**
+     * 워커마다 claim -> 처리(1ms) -> complete 를 큐가 빌 때까지 반복한다.
+     * 워커별로 처리한 id 목록을 돌려준다.
+     */
+    private List<List<Long>> drain(int workers) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(workers);
+        try {
+            List<Future<List<Long>>> futures = new ArrayList<>();
+            for (int i = 0; i < workers; i++) {
+                String owner = "worker" + i;
+                futures.add(executor.submit(() -> {
+                    List<Long> processed = new ArrayList<>();
+                    List<MemberTask> tasks;
+                    while (!(tasks = memberTaskRepository.claim(owner, BATCH)).isEmpty()) {
+                        List<Long> ids = tasks.stream().map(MemberTask::getId).collect(Collectors.toList());
+                        Thread.sleep(tasks.size());
+                        memberTaskRepository.complete(owner, ids);
+                        processed.addAll(ids);
+                    }
+                    return processed;
+                }));
+            }
+
+            List<List<Long>> perWorker = new ArrayList<>();
+            for (Future<List<Long>> future : futures) {
+                perWorker.add(future.get(60, TimeUnit.SECONDS));
+            }
+            return perWorker;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private Set<Long> createTasks(int count) {
+        return transactionTemplate.execute(status -> {
+            Member member = new Member("taskMember", 10);
+            em.persist(member);
+            Set<Long> ids = new HashSet<>();
+            for (int i = 0; i < count; i++) {
+                MemberTask task = new MemberTask(member);
+                em.persist(task);
+                ids.add(task.getId());
+            }
+            return ids;
+        });
+    }
+}
@@ -0,0 +1,65 @@
+package study.datajpa.repository;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.datajpa.entity.Member;
+import study.datajpa.entity.Team;
+
+import javax.persistence.Cache;
+import javax.persistence.EntityManagerFactory;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 2차 캐시는 커밋 후에 채워지므로 테스트 데이터를 커밋한다. (@Transactional 없음)
+ */
+@SpringBootTest
+class TeamRepositoryTest {
+    @Autowired
+    TeamRepository teamRepository;
+    @Autowired
+    MemberRepository memberRepository;
+    @Autowired
+    EntityManagerFactory emf;
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @Test
+    public void secondLevelCache_saveAndDelete() {
+        Cache cache = emf.getCache();
+        Team team = teamRepository.save(new Team("cachedTeam"));
+
+        cache.evict(Team.class);
+        assertThat(cache.contains(Team.class, team.getId())).isFalse();
+
+        // 조회하면 캐시에 올라간다.
+        teamRepository.findById(team.getId());
+        assertThat(cache.contains(Team.class, team.getId())).isTrue();
+
+        // 삭제하면 캐시에서도 빠진다.
+        // READ_WRITE 는 지운 키 자리에 lock 항목을 남기므로 (contains 는 true) 캐시 hit 가 없는지로 확인한다.
+        teamRepository.delete(team);
+        Statistics statistics = emf.unwrap(SessionFactory.class).getStatistics();
+        long hits = statistics.getSecondLevelCacheHitCount();
+        assertThat(teamRepository.findById(team.getId())).isEmpty();
+        assertThat(statistics.getSecondLevelCacheHitCount()).isEqualTo(hits);
+    }
+
+    @Test
+    public void secondLevelCache_bulkUpdate() {
+        Cache cache = emf.getCache();
+        Member member = memberRepository.save(new Member("cachedMember", 5000));
+        memberRepository.findById(member.getId());
+        assertThat(cache.contains(Member.class, member.getId())).isTrue();
+
+        // 벌크 update 는 영속성 컨텍스트를 거치지 않으므로 hibernate 가 Member region 을 통째로 비운다.
+        transactionTemplate.executeWithoutResult(status -> memberRepository.bulkAgePlus(5000));
+
+        assertThat(cache.contains(Member.class, member.getId())).isFalse();
+        assertThat(memberRepository.findById(member.getId()).get().getAge()).isEqualTo(5001);
+    }
+}
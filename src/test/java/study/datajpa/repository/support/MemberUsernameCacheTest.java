@@ -0,0 +1,163 @@
+package study.datajpa.repository.support;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.datajpa.entity.Member;
+import study.datajpa.entity.Team;
+import study.datajpa.repository.MemberRepository;
+import study.datajpa.repository.TeamRepository;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 캐시는 트랜잭션 밖/읽기 전용 트랜잭션에서만 쓰이므로 커밋하면서 확인한다. (@Transactional 없음)
+ */
+@SpringBootTest
+class MemberUsernameCacheTest {
+    @Autowired
+    MemberRepository memberRepository;
+    @Autowired
+    TeamRepository teamRepository;
+    @Autowired
+    EntityManagerFactory emf;
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Test
+    public void hit_skipsQuery() {
+        memberRepository.save(new Member("nearCacheHit", 10));
+        Statistics statistics = emf.unwrap(SessionFactory.class).getStatistics();
+
+        memberRepository.findByUsername("nearCacheHit");
+        long queries = statistics.getQueryExecutionCount();
+        List<Member> cached = memberRepository.findByUsername("nearCacheHit");
+        Member single = memberRepository.findMemberByUsername("nearCacheHit");
+
+        assertThat(statistics.getQueryExecutionCount()).isEqualTo(queries);
+        assertThat(cached).extracting("username").containsExactly("nearCacheHit");
+        assertThat(single.getId()).isEqualTo(cached.get(0).getId());
+    }
+
+    @Test
+    public void invalidated_afterCommit() {
+        // given
+        Member member = memberRepository.save(new Member("nearCacheWrite", 10));
+        assertThat(memberRepository.findByUsername("nearCacheWrite")).hasSize(1);
+
+        // insert
+        Member other = memberRepository.save(new Member("nearCacheWrite", 20));
+        assertThat(memberRepository.findByUsername("nearCacheWrite")).hasSize(2);
+
+        // delete
+        memberRepository.delete(other);
+        assertThat(memberRepository.findByUsername("nearCacheWrite")).hasSize(1);
+
+        // username 변경
+        transaction(false).executeWithoutResult(status ->
+                memberRepository.findById(member.getId()).get().setUsername("nearCacheRenamed"));
+        assertThat(memberRepository.findOptionalByUsername("nearCacheWrite")).isEmpty();
+        assertThat(memberRepository.findOptionalByUsername("nearCacheRenamed")).isPresent();
+
+        // 나이 변경, 벌크 업데이트, 팀 변경은 엔티티(2차 캐시)로 반영된다.
+        Team team = teamRepository.save(new Team("nearCacheTeam"));
+        transaction(false).executeWithoutResult(status -> {
+            Member found = memberRepository.findById(member.getId()).get();
+            found.setAge(30);
+            found.changeTeam(teamRepository.findById(team.getId()).get());
+        });
+        transaction(false).executeWithoutResult(status -> memberRepository.bulkAgePlus(30));
+        transaction(true).executeWithoutResult(status -> {
+            Member found = memberRepository.findMemberByUsername("nearCacheRenamed");
+            assertThat(found.getAge()).isEqualTo(31);
+            assertThat(found.getTeam().getId()).isEqualTo(team.getId());
+        });
+    }
+
+    @Test
+    public void requiresNew_invalidatedOnItsOwnCommit() throws Exception {
+        // given
+        Member member = memberRepository.save(new Member("nearCacheNested", 10));
+        assertThat(memberRepository.findOptionalByUsername("nearCacheNested")).isPresent();
+        TransactionTemplate requiresNew = transaction(false);
+        requiresNew.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        ExecutorService reader = Executors.newSingleThreadExecutor();
+
+        try {
+            // when: 바깥 트랜잭션이 열려 있는 동안 안쪽(REQUIRES_NEW)에서 이름을 바꿔 커밋한다. (OptimisticRetryTemplate)
+            Optional<Member> seenBeforeOuterCommit = transaction(false).execute(outer -> {
+                requiresNew.executeWithoutResult(inner ->
+                        memberRepository.findById(member.getId()).get().setUsername("nearCacheNestedRenamed"));
+                try {
+                    // 다른 스레드(트랜잭션 밖)의 조회
+                    return reader.submit(() -> memberRepository.findOptionalByUsername("nearCacheNested"))
+                            .get(10, TimeUnit.SECONDS);
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            });
+
+            // then: 안쪽 커밋 직후부터 예전 이름으로 찾을 수 없다.
+            assertThat(seenBeforeOuterCommit).isEmpty();
+        } finally {
+            reader.shutdownNow();
+        }
+    }
+
+    @Test
+    public void concurrentReaders_neverSeeStaleAfterCommit() throws Exception {
+        String username = "nearCacheConcurrent";
+        List<Long> ids = new ArrayList<>();
+        AtomicBoolean running = new AtomicBoolean(true);
+        ExecutorService readers = Executors.newFixedThreadPool(4);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            // 쓰는 동안 계속 조회해서 커밋 전 데이터로 캐시를 채우려고 한다.
+            futures.add(readers.submit(() -> {
+                while (running.get()) {
+                    memberRepository.findByUsername(username);
+                }
+            }));
+        }
+
+        try {
+            for (int i = 0; i < 30; i++) {
+                ids.add(memberRepository.save(new Member(username, i)).getId());
+                // 커밋이 끝난 뒤의 조회는 방금 쓴 것을 포함해야 한다.
+                assertThat(memberRepository.findByUsername(username)).extracting("id")
+                        .containsExactlyInAnyOrderElementsOf(ids);
+
+                if (i % 3 == 2) {
+                    Long removed = ids.remove(0);
+                    memberRepository.deleteById(removed);
+                    assertThat(memberRepository.findByUsername(username)).extracting("id")
+                            .containsExactlyInAnyOrderElementsOf(ids);
+                }
+            }
+        } finally {
+            running.set(false);
+            for (Future<?> future : futures) {
+                future.get(10, TimeUnit.SECONDS);
+            }
+            readers.shutdownNow();
+        }
+    }
+
+    private TransactionTemplate transaction(boolean readOnly) {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setReadOnly(readOnly);
+        return transactionTemplate;
+    }
+}
@@ -0,0 +1,86 @@
+package study.datajpa.repository.support;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.datajpa.entity.Member;
+import study.datajpa.repository.MemberRepository;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * 시도마다 새 트랜잭션으로 커밋하므로 @Transactional 없음
+ */
+@SpringBootTest(properties = {
+        "datajpa.optimistic.max-attempts=3",
+        "datajpa.optimistic.backoff-millis=1"})
+class OptimisticRetryTemplateTest {
+    @Autowired
+    OptimisticRetryTemplate optimisticRetryTemplate;
+    @Autowired
+    MemberRepository memberRepository;
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Test
+    public void retry_afterConflict() {
+        // given
+        Long id = memberRepository.save(new Member("optimisticMember1", 10)).getId();
+        AtomicInteger attempts = new AtomicInteger();
+
+        // when
+        optimisticRetryTemplate.executeWithoutResult(status -> {
+            Member member = memberRepository.findById(id).get();
+            if (attempts.incrementAndGet() == 1) {
+                // 읽은 뒤 다른 트랜잭션이 먼저 커밋 -> 이번 시도는 커밋할 때 충돌
+                otherTransaction().executeWithoutResult(other -> memberRepository.findById(id).get().setAge(20));
+            }
+            member.setAge(member.getAge() + 1);
+        });
+
+        // then
+        assertThat(attempts.get()).isEqualTo(2);
+        Member member = memberRepository.findById(id).get();
+        // 다른 트랜잭션의 수정(20)을 다시 읽고 +1
+        assertThat(member.getAge()).isEqualTo(21);
+        assertThat(member.getVersion()).isEqualTo(2L);
+    }
+
+    @Test
+    public void giveUp_afterMaxAttempts() {
+        Long id = memberRepository.save(new Member("optimisticMember2", 10)).getId();
+        AtomicInteger attempts = new AtomicInteger();
+
+        assertThatThrownBy(() -> optimisticRetryTemplate.executeWithoutResult(status -> {
+            attempts.incrementAndGet();
+            Member member = memberRepository.findById(id).get();
+            otherTransaction().executeWithoutResult(other ->
+                    memberRepository.findById(id).get().setAge(member.getAge() + 100));
+            member.setAge(member.getAge() + 1);
+        })).isInstanceOf(ObjectOptimisticLockingFailureException.class);
+
+        assertThat(attempts.get()).isEqualTo(3);
+    }
+
+    @Test
+    public void bulkUpdate_incrementsVersion() {
+        Member saved = memberRepository.save(new Member("optimisticMember3", 9301));
+
+        otherTransaction().executeWithoutResult(status -> memberRepository.bulkAgePlus(9301));
+
+        assertThat(memberRepository.findById(saved.getId()).get().getVersion()).isEqualTo(saved.getVersion() + 1);
+    }
+
+    private TransactionTemplate otherTransaction() {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        return transactionTemplate;
+    }
+}
@@ -0,0 +1,84 @@
+package study.datajpa.repository.support;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import study.datajpa.dto.MemberDto;
+import study.datajpa.entity.Member;
+import study.datajpa.repository.MemberRepository;
+
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * count 는 다른 스레드의 트랜잭션에서 실행되므로 테스트 데이터를 커밋해야 한다. (@Transactional 없음)
+ */
+@SpringBootTest(properties = "datajpa.page.count.cache-ttl-millis=60000")
+class PageCountExecutorTest {
+    @Autowired
+    MemberRepository memberRepository;
+    @Autowired
+    PageCountExecutor pageCountExecutor;
+
+    @Test
+    public void parallelCount_cached() {
+        // given
+        int age = 7001;
+        memberRepository.save(new Member("countMember1", age));
+        memberRepository.save(new Member("countMember2", age));
+        PageRequest pageRequest = PageRequest.of(0, 1, Sort.Direction.DESC, "username");
+
+        // when
+        Page<Member> first = memberRepository.findPageByAge(age, pageRequest);
+        memberRepository.save(new Member("countMember3", age));
+        Page<Member> cached = memberRepository.findPageByAge(age, pageRequest);
+        pageCountExecutor.evict("Member.age=" + age);
+        Page<Member> evicted = memberRepository.findPageByAge(age, pageRequest);
+
+        // then
+        assertThat(first.getContent()).extracting("username").containsExactly("countMember2");
+        assertThat(first.getTotalElements()).isEqualTo(2);
+        // TTL 동안은 캐시된 count 를 쓴다.
+        assertThat(cached.getTotalElements()).isEqualTo(2);
+        assertThat(cached.getContent()).extracting("username").containsExactly("countMember3");
+        assertThat(evicted.getTotalElements()).isEqualTo(3);
+    }
+
+    @Test
+    public void lastPage_doesNotWaitForCount() {
+        // content 가 page size 보다 적으면 total 을 content 로 알 수 있다. -> 느린 count 를 기다리지 않는다.
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            Page<String> page = pageCountExecutor.page(PageRequest.of(0, 10), "lastPage-" + System.nanoTime(),
+                    () -> Arrays.asList("a", "b"),
+                    () -> {
+                        try {
+                            release.await(10, TimeUnit.SECONDS);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                        return 99;
+                    });
+
+            assertThat(page.getTotalElements()).isEqualTo(2);
+        } finally {
+            release.countDown();
+        }
+    }
+
+    @Test
+    public void estimatedCount() {
+        memberRepository.save(new Member("estimateMember", 7002));
+
+        Page<MemberDto> page = memberRepository.findMemberDtoPage(PageRequest.of(0, 1), CountMode.ESTIMATED);
+
+        assertThat(page.getContent()).hasSize(1);
+        assertThat(page.getTotalElements()).isPositive();
+    }
+}
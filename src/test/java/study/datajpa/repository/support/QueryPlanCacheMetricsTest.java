@@ -0,0 +1,57 @@
+package study.datajpa.repository.support;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+import study.datajpa.entity.Member;
+import study.datajpa.entity.Team;
+import study.datajpa.repository.MemberJpaRepository;
+import study.datajpa.repository.TeamJpaRepository;
+
+import javax.persistence.EntityManagerFactory;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@Transactional
+class QueryPlanCacheMetricsTest {
+    @Autowired
+    MemberJpaRepository memberJpaRepository;
+    @Autowired
+    TeamJpaRepository teamJpaRepository;
+    @Autowired
+    EntityManagerFactory emf;
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    @Test
+    public void namedQueries_neverMissPlanCache() {
+        // given
+        memberJpaRepository.save(new Member("planMember", 10));
+        teamJpaRepository.save(new Team("planTeam"));
+        Statistics statistics = emf.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        // when
+        // named query 는 시작할 때 이미 파싱돼 있으므로 처음 호출부터 플랜 캐시 hit
+        memberJpaRepository.findAll();
+        memberJpaRepository.count();
+        memberJpaRepository.findByUsernameAndAgeGreaterThan("planMember", 5);
+        memberJpaRepository.findByPage(10, 0, 3);
+        memberJpaRepository.totalCount(10);
+        memberJpaRepository.bulkAgePlus(9901);
+        memberJpaRepository.bulkAgePlus(9901, 0, 1);
+        teamJpaRepository.findAll();
+        teamJpaRepository.count();
+
+        // then
+        assertThat(statistics.getQueryPlanCacheMissCount()).isZero();
+        assertThat(statistics.getQueryPlanCacheHitCount()).isGreaterThanOrEqualTo(9);
+        assertThat(meterRegistry.get("hibernate.query.plan.cache").tag("result", "hit").functionCounter().count())
+                .isGreaterThanOrEqualTo(9);
+    }
+}
@@ -0,0 +1,96 @@
+package study.datajpa.repository.support;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.metrics.AutoConfigureMetrics;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.annotation.Transactional;
+import study.datajpa.entity.Member;
+import study.datajpa.repository.MemberJpaRepository;
+import study.datajpa.repository.MemberRepository;
+
+import javax.persistence.EntityManager;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 테스트에서는 지표 export(prometheus)가 꺼져 있으므로 @AutoConfigureMetrics 로 켠다.
+ */
+@SpringBootTest
+@AutoConfigureMetrics
+@Transactional
+class RepositoryMetricsTest {
+    @Autowired
+    MemberRepository memberRepository;
+    @Autowired
+    MemberJpaRepository memberJpaRepository;
+    @Autowired
+    MeterRegistry meterRegistry;
+    @Autowired
+    PrometheusMeterRegistry prometheusMeterRegistry;
+    @Autowired
+    EntityManager em;
+
+    @Test
+    public void springDataRepository() {
+        // given
+        memberRepository.save(new Member("metrics1", 10));
+        memberRepository.save(new Member("metrics1", 20));
+        em.flush();
+        em.clear();
+
+        // when
+        memberRepository.findByUsername("metrics1");
+
+        // then
+        Timer timer = meterRegistry.get("repository.invocations")
+                .tag("repository", "MemberRepository").tag("method", "findByUsername(String)").timer();
+        DistributionSummary rows = meterRegistry.get("repository.rows")
+                .tag("repository", "MemberRepository").tag("method", "findByUsername(String)").summary();
+        DistributionSummary entities = meterRegistry.get("repository.entities.loaded")
+                .tag("repository", "MemberRepository").tag("method", "findByUsername(String)").summary();
+        assertThat(timer.count()).isGreaterThanOrEqualTo(1);
+        assertThat(rows.max()).isGreaterThanOrEqualTo(2);
+        assertThat(entities.max()).isGreaterThanOrEqualTo(2);
+    }
+
+    @Test
+    public void jpaRepository() {
+        memberJpaRepository.save(new Member("metrics2", 10));
+
+        memberJpaRepository.findByUsernameAndAgeGreaterThan("metrics2", 5);
+
+        Timer timer = meterRegistry.get("repository.invocations")
+                .tag("repository", "MemberJpaRepository").tag("method", "findByUsernameAndAgeGreaterThan(String,int)").timer();
+        assertThat(timer.count()).isGreaterThanOrEqualTo(1);
+    }
+
+    @Test
+    public void overloads() {
+        // 이름이 같은 메서드도 파라미터 타입으로 나눠서 잰다.
+        memberRepository.findMemberDtoPage(PageRequest.of(0, 3));
+        memberRepository.findMemberDtoPage(PageRequest.of(0, 3), CountMode.EXACT);
+
+        assertThat(meterRegistry.get("repository.invocations")
+                .tag("repository", "MemberRepository").tag("method", "findMemberDtoPage(Pageable)").timer().count())
+                .isGreaterThanOrEqualTo(1);
+        assertThat(meterRegistry.get("repository.invocations")
+                .tag("repository", "MemberRepository").tag("method", "findMemberDtoPage(Pageable,CountMode)").timer().count())
+                .isGreaterThanOrEqualTo(1);
+    }
+
+    @Test
+    public void prometheusFormat() {
+        memberRepository.findMemberCustom();
+
+        String scrape = prometheusMeterRegistry.scrape();
+
+        assertThat(scrape).containsPattern(
+                "repository_invocations_seconds\\{method=\"findMemberCustom\\(\\)\",repository=\"MemberRepository\",quantile=\"0.99\",?}");
+    }
+}
@@ -0,0 +1,150 @@
+package study.datajpa.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.datajpa.dto.BulkJobProgress;
+import study.datajpa.entity.BulkJobStatus;
+import study.datajpa.entity.Member;
+import study.datajpa.repository.MemberRepository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * 청크는 각자 트랜잭션으로 커밋되므로 테스트 데이터를 커밋해야 한다. (@Transactional 없음)
+ * 다른 테스트 데이터와 섞이지 않도록 아무도 쓰지 않는 나이를 쓴다.
+ */
+@SpringBootTest(properties = {
+        "datajpa.bulk.chunk-size=3",
+        "datajpa.bulk.concurrency=2",
+        "datajpa.bulk.pause-millis=0"})
+class MemberBulkUpdateServiceTest {
+    @Autowired
+    MemberBulkUpdateService memberBulkUpdateService;
+    @Autowired
+    MemberRepository memberRepository;
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @Test
+    public void bulkAgePlus_chunked() {
+        // given
+        List<Member> members = saveMembers("bulkChunk", 8001, 10);
+
+        // when
+        BulkJobProgress progress = memberBulkUpdateService.bulkAgePlus("bulkChunk-" + System.nanoTime(), 8001);
+
+        // then
+        assertThat(progress.getStatus()).isEqualTo(BulkJobStatus.COMPLETED);
+        assertThat(progress.getCompletedChunks()).isEqualTo(progress.getTotalChunks());
+        assertThat(progress.getUpdatedRows()).isGreaterThanOrEqualTo(10);
+        for (Member member : members) {
+            assertThat(memberRepository.findById(member.getId()).get().getAge()).isEqualTo(8002);
+        }
+    }
+
+    @Test
+    public void resume_afterFailure() {
+        // given
+        List<Member> members = saveMembers("bulkResume", 8101, 10);
+        String jobName = "bulkResume-" + System.nanoTime();
+        String description = "bulkAgePlus(8101)";
+        AtomicInteger calls = new AtomicInteger();
+
+        // when
+        // 세 번째 청크에서 죽는다. -> 이미 커밋된 청크는 그대로 남는다.
+        assertThatThrownBy(() -> memberBulkUpdateService.run(jobName, description, (fromId, toId) -> {
+            if (calls.incrementAndGet() == 3) {
+                throw new IllegalStateException("crash");
+            }
+            return memberRepository.bulkAgePlus(8101, fromId, toId);
+        })).isInstanceOf(IllegalStateException.class);
+        assertThat(memberBulkUpdateService.progress(jobName).getStatus()).isEqualTo(BulkJobStatus.FAILED);
+
+        // 같은 이름으로 다시 실행하면 남은 청크만 실행한다.
+        BulkJobProgress progress = memberBulkUpdateService.run(jobName, description,
+                (fromId, toId) -> memberRepository.bulkAgePlus(8101, fromId, toId));
+        // 완료된 작업은 다시 실행하지 않는다.
+        BulkJobProgress again = memberBulkUpdateService.run(jobName, description,
+                (fromId, toId) -> memberRepository.bulkAgePlus(8101, fromId, toId));
+
+        // then
+        assertThat(progress.getStatus()).isEqualTo(BulkJobStatus.COMPLETED);
+        assertThat(again.getUpdatedRows()).isEqualTo(progress.getUpdatedRows());
+        // 모든 회원이 정확히 한 번씩만 +1
+        for (Member member : members) {
+            assertThat(memberRepository.findById(member.getId()).get().getAge()).isEqualTo(8102);
+        }
+    }
+
+    @Test
+    public void concurrentRun_rejected() throws Exception {
+        // given
+        List<Member> members = saveMembers("bulkConcurrent", 8301, 4);
+        String jobName = "bulkConcurrent-" + System.nanoTime();
+        String description = "bulkAgePlus(8301)";
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+
+        try {
+            // 첫 번째 실행은 첫 청크에서 멈춰 있다.
+            Future<BulkJobProgress> first = executor.submit(() -> memberBulkUpdateService.run(jobName, description,
+                    (fromId, toId) -> {
+                        started.countDown();
+                        await(release);
+                        return memberRepository.bulkAgePlus(8301, fromId, toId);
+                    }));
+            assertThat(started.await(10, TimeUnit.SECONDS)).isTrue();
+
+            // when
+            // 같은 작업을 동시에 실행하면 청크를 다시 실행하지 않고 바로 거절한다.
+            assertThatThrownBy(() -> memberBulkUpdateService.run(jobName, description,
+                    (fromId, toId) -> memberRepository.bulkAgePlus(8301, fromId, toId)))
+                    .isInstanceOf(IllegalStateException.class)
+                    .hasMessageContaining("already running");
+            release.countDown();
+
+            // then
+            // 거절된 쪽이 상태를 FAILED 로 바꾸지 않는다.
+            assertThat(first.get(10, TimeUnit.SECONDS).getStatus()).isEqualTo(BulkJobStatus.COMPLETED);
+            assertThat(memberBulkUpdateService.progress(jobName).getStatus()).isEqualTo(BulkJobStatus.COMPLETED);
+            for (Member member : members) {
+                assertThat(memberRepository.findById(member.getId()).get().getAge()).isEqualTo(8302);
+            }
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void readWriteTransaction_rejected() {
+        assertThatThrownBy(() -> transactionTemplate.executeWithoutResult(status ->
+                memberBulkUpdateService.bulkAgePlus("bulkRejected-" + System.nanoTime(), 8201)))
+                .isInstanceOf(IllegalStateException.class);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private List<Member> saveMembers(String prefix, int age, int count) {
+        List<Member> members = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            members.add(memberRepository.save(new Member(prefix + i, age)));
+        }
+        return members;
+    }
+}
@@ -0,0 +1,48 @@
+package study.datajpa.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+import study.datajpa.entity.Member;
+import study.datajpa.entity.Team;
+import study.datajpa.repository.MemberRepository;
+import study.datajpa.repository.TeamRepository;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = {"datajpa.export.fetch-size=2", "datajpa.export.detach-interval=2"})
+@Transactional
+class MemberExportServiceTest {
+    @Autowired
+    MemberExportService memberExportService;
+    @Autowired
+    MemberRepository memberRepository;
+    @Autowired
+    TeamRepository teamRepository;
+
+    @Test
+    public void exportNdjson() {
+        // given
+        Team team = teamRepository.save(new Team("exportTeam"));
+        memberRepository.save(new Member("exportMember1", 10, team));
+        memberRepository.save(new Member("exportMember2", 20));
+        long total = memberRepository.count();
+
+        // when
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        long rows = memberExportService.exportNdjson(out);
+
+        // then
+        List<String> lines = Arrays.asList(new String(out.toByteArray(), StandardCharsets.UTF_8).split("\n"));
+        assertThat(rows).isEqualTo(total);
+        assertThat(lines).hasSize((int) total);
+        assertThat(lines).anyMatch(line -> line.contains("\"username\":\"exportMember1\"") && line.contains("\"teamName\":\"exportTeam\""));
+        assertThat(lines).anyMatch(line -> line.contains("\"username\":\"exportMember2\"") && line.contains("\"teamName\":null"));
+    }
+}
@@ -0,0 +1,112 @@
+package study.datajpa.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+import study.datajpa.dto.ImportResult;
+import study.datajpa.entity.Member;
+import study.datajpa.repository.MemberRepository;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest(properties = "datajpa.import.chunk-size=2")
+@Transactional
+class MemberImportServiceTest {
+    @Autowired
+    MemberImportService memberImportService;
+    @Autowired
+    MemberRepository memberRepository;
+
+    @Test
+    public void importCsv() {
+        String csv = "username,age,teamName\n" +
+                "importCsv1,10,importTeamA\n" +
+                "importCsv2,20,importTeamA\n" +
+                "importCsv3,30,importTeamB\n" +
+                "importCsv4,40,\n";
+
+        // chunk-size=2 -> chunk 2개
+        ImportResult result = memberImportService.importCsv(stream(csv));
+
+        assertThat(result.getRows()).isEqualTo(4);
+        List<Member> members = memberRepository.findByUsername("importCsv3");
+        assertThat(members).hasSize(1);
+        assertThat(members.get(0).getAge()).isEqualTo(30);
+        assertThat(members.get(0).getTeam().getName()).isEqualTo("importTeamB");
+        assertThat(memberRepository.findByUsername("importCsv4").get(0).getTeam()).isNull();
+    }
+
+    @Test
+    public void importNdjson() {
+        String ndjson = "{\"username\":\"importJson1\",\"age\":10,\"teamName\":\"importTeamC\"}\n" +
+                "\n" +
+                "{\"username\":\"importJson2\",\"age\":20,\"teamName\":\"importTeamC\"}\n" +
+                "{\"username\":\"importJson3\",\"age\":30}\n";
+
+        ImportResult result = memberImportService.importNdjson(stream(ndjson));
+
+        assertThat(result.getRows()).isEqualTo(3);
+        Member member1 = memberRepository.findByUsername("importJson1").get(0);
+        Member member2 = memberRepository.findByUsername("importJson2").get(0);
+        // 같은 이름의 팀은 한 번만 만들어진다.
+        assertThat(member1.getTeam().getId()).isEqualTo(member2.getTeam().getId());
+    }
+
+    @Test
+    public void importCsv_invalidLine() {
+        assertThatThrownBy(() -> memberImportService.importCsv(stream("importBroken\n")))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void importNdjson_nullLine() {
+        String ndjson = "{\"username\":\"importJsonNull\",\"age\":10}\n" +
+                "null\n";
+
+        assertThatThrownBy(() -> memberImportService.importNdjson(stream(ndjson)))
+                .isInstanceOfSatisfying(MemberImportException.class, e -> assertThat(e.getLine()).isEqualTo(2))
+                .hasCauseInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void importCsv_headerOnlyOnFirstLine() {
+        // username 으로 시작하는 이름도 회원이다. 헤더는 첫 줄만 본다.
+        String csv = "username,age\n" +
+                "username42,10\n" +
+                "username,20\n";
+
+        ImportResult result = memberImportService.importCsv(stream(csv));
+
+        assertThat(result.getRows()).isEqualTo(2);
+        assertThat(memberRepository.findByUsername("username42")).hasSize(1);
+        assertThat(memberRepository.findByUsername("username")).hasSize(1);
+    }
+
+    @Test
+    public void importCsv_reportsCommittedRows() {
+        // chunk-size=2 -> 앞의 두 줄은 커밋된 뒤 4번째 줄에서 실패
+        String csv = "username,age\n" +
+                "importPartial1,10\n" +
+                "importPartial2,20\n" +
+                "importPartial3,abc\n";
+
+        assertThatThrownBy(() -> memberImportService.importCsv(stream(csv)))
+                .isInstanceOfSatisfying(MemberImportException.class, e -> {
+                    assertThat(e.getLine()).isEqualTo(4);
+                    assertThat(e.getCommittedRows()).isEqualTo(2);
+                })
+                .hasMessageContaining("line 4")
+                .hasMessageContaining("2 rows committed");
+        assertThat(memberRepository.findByUsername("importPartial2")).hasSize(1);
+    }
+
+    private ByteArrayInputStream stream(String body) {
+        return new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,90 @@
+package study.datajpa.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.transaction.annotation.Transactional;
+import study.datajpa.dto.MemberDto;
+import study.datajpa.dto.TeamSummaryDto;
+import study.datajpa.entity.Member;
+import study.datajpa.entity.Team;
+import study.datajpa.repository.MemberRepository;
+import study.datajpa.repository.TeamRepository;
+import study.datajpa.sql.SqlStatementCounter;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = {
+        "datajpa.sql.statement-count.enabled=true",
+        "spring.jpa.properties.hibernate.default_batch_fetch_size=10"})
+@Transactional
+class TeamSummaryServiceTest {
+    private static final int TEAMS = 30;
+    private static final int MEMBERS_PER_TEAM = 3;
+
+    @Autowired
+    TeamSummaryService teamSummaryService;
+    @Autowired
+    TeamRepository teamRepository;
+    @Autowired
+    MemberRepository memberRepository;
+    @Autowired
+    SqlStatementCounter counter;
+    @Autowired
+    EntityManager em;
+
+    @Test
+    public void summaries_batchFetchMembers() {
+        // given
+        saveTeams();
+
+        // when
+        // 팀 페이지 1 + count 1 + members 컬렉션 30개를 10개씩 3번
+        Page<TeamSummaryDto> page = counter.expectAtMost(2 + TEAMS / 10,
+                () -> teamSummaryService.summaries(PageRequest.of(0, TEAMS, Sort.by("name"))));
+
+        // then
+        assertThat(page.getContent()).hasSize(TEAMS);
+        for (TeamSummaryDto summary : page.getContent()) {
+            assertThat(summary.getMembers()).hasSize(MEMBERS_PER_TEAM)
+                    .extracting("teamName").containsOnly(summary.getName());
+        }
+    }
+
+    @Test
+    public void memberTeam_batchFetchProxies() {
+        // given
+        List<String> usernames = saveTeams().stream().map(Member::getUsername).collect(Collectors.toList());
+
+        // when
+        // 회원 1 + team 프록시 30개를 10개씩 3번 (회원 90명이 팀 30개를 공유)
+        List<MemberDto> members = counter.expectAtMost(1 + TEAMS / 10,
+                () -> memberRepository.findByNames(usernames).stream()
+                        .map(MemberDto::new)
+                        .collect(Collectors.toList()));
+
+        // then
+        assertThat(members).hasSize(TEAMS * MEMBERS_PER_TEAM);
+    }
+
+    private List<Member> saveTeams() {
+        List<Member> members = new ArrayList<>();
+        for (int i = 0; i < TEAMS; i++) {
+            Team team = teamRepository.save(new Team(String.format("summaryTeam%02d", i)));
+            for (int j = 0; j < MEMBERS_PER_TEAM; j++) {
+                members.add(memberRepository.save(new Member("summaryMember" + i + "-" + j, 10, team)));
+            }
+        }
+        em.flush();
+        em.clear();
+        return members;
+    }
+}
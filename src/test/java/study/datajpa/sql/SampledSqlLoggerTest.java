@@ -0,0 +1,61 @@
+package study.datajpa.sql;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+import study.datajpa.entity.Member;
+import study.datajpa.repository.MemberRepository;
+
+import java.time.Instant;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// 임계값 0 -> 모든 SQL 이 느린 쿼리로 잡힌다.
+@SpringBootTest(properties = "datajpa.sql.log.slow-threshold-millis=0")
+@Transactional
+class SampledSqlLoggerTest {
+    @Autowired
+    MemberRepository memberRepository;
+    @Autowired
+    SlowQueryBuffer slowQueryBuffer;
+
+    @Test
+    public void slowQueryWithBindValues() {
+        memberRepository.save(new Member("slowQueryMember", 10));
+
+        memberRepository.findByUsername("slowQueryMember");
+
+        List<SlowQuery> recent = slowQueryBuffer.recent(10);
+        assertThat(recent).isNotEmpty();
+        assertThat(recent.get(0).getSql()).contains("'slowQueryMember'");
+    }
+
+    @Test
+    public void ringBuffer() {
+        SlowQueryBuffer buffer = new SlowQueryBuffer(3);
+        for (int i = 1; i <= 5; i++) {
+            buffer.add(new SlowQuery(Instant.now(), i, "sql" + i, null));
+        }
+
+        // 가장 오래된 2개는 덮어써지고 최신순으로 나온다.
+        assertThat(buffer.recent(10)).extracting("sql").containsExactly("sql5", "sql4", "sql3");
+        assertThat(buffer.recent(2)).extracting("sql").containsExactly("sql5", "sql4");
+    }
+
+    @Test
+    public void ringBuffer_clear() {
+        SlowQueryBuffer buffer = new SlowQueryBuffer(4);
+        for (int i = 1; i <= 10; i++) {
+            buffer.add(new SlowQuery(Instant.now(), i, "sql" + i, null));
+        }
+
+        buffer.clear();
+        buffer.add(new SlowQuery(Instant.now(), 11, "sql11", null));
+        buffer.add(new SlowQuery(Instant.now(), 12, "sql12", null));
+
+        // 비운 뒤에 들어온 것만, 한 번씩
+        assertThat(buffer.recent(10)).extracting("sql").containsExactly("sql12", "sql11");
+    }
+}
@@ -0,0 +1,87 @@
+package study.datajpa.sql;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.transaction.annotation.Transactional;
+import study.datajpa.dto.MemberDto;
+import study.datajpa.entity.Member;
+import study.datajpa.entity.Team;
+import study.datajpa.repository.MemberRepository;
+import study.datajpa.repository.TeamRepository;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+// N+1 감지를 보려고 batch fetch 를 끈다. (켜져 있으면 팀 지연로딩이 in 절 한 번으로 묶인다: TeamSummaryServiceTest)
+@SpringBootTest(properties = {
+        "datajpa.sql.statement-count.enabled=true",
+        "spring.jpa.properties.hibernate.default_batch_fetch_size=1"})
+@Transactional
+class SqlStatementCounterTest {
+    @Autowired
+    SqlStatementCounter counter;
+    @Autowired
+    MemberRepository memberRepository;
+    @Autowired
+    TeamRepository teamRepository;
+    @Autowired
+    EntityManager em;
+
+    @Test
+    public void detectLazyLoadingNPlusOne() {
+        // given
+        saveMembersWithTeams(5);
+
+        // when
+        // MemberDto(member) 는 member.getTeam().getName() 으로 팀을 하나씩 지연로딩한다.
+        StatementScope scope = counter.measure(() -> memberRepository.findMemberCustom()
+                .stream()
+                .filter(member -> member.getTeam() != null)
+                .map(MemberDto::new)
+                .collect(Collectors.toList()));
+
+        // then
+        assertThat(scope.getRepeated(3)).hasSize(1);
+        assertThat(scope.getTotal()).isGreaterThanOrEqualTo(1 + 5);
+    }
+
+    @Test
+    public void expectNoRepeatedStatements_fails() {
+        saveMembersWithTeams(5);
+
+        assertThatThrownBy(() -> counter.expectNoRepeatedStatements(() -> memberRepository.findMemberCustom()
+                .stream()
+                .filter(member -> member.getTeam() != null)
+                .map(MemberDto::new)
+                .collect(Collectors.toList())))
+                .isInstanceOf(AssertionError.class);
+    }
+
+    @Test
+    public void dtoPage_twoStatements() {
+        saveMembersWithTeams(5);
+
+        // content 1번 + count 1번
+        Page<MemberDto> page = counter.expectAtMost(2,
+                () -> memberRepository.findMemberDtoPage(PageRequest.of(0, 3, Sort.by("username"))));
+
+        assertThat(page.getContent()).hasSize(3);
+    }
+
+    private void saveMembersWithTeams(int count) {
+        for (int i = 0; i < count; i++) {
+            Team team = teamRepository.save(new Team("counterTeam" + i));
+            memberRepository.save(new Member("counterMember" + i, 10, team));
+        }
+        em.flush();
+        em.clear();
+    }
+}